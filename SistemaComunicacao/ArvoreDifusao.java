@@ -0,0 +1,145 @@
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Árvore geradora sobre o grafo de vizinhos, usada pelo broadcast com repasse
+ * Cada nó anuncia (raiz, distância, pai) aos vizinhos; a raiz é o menor id alcançável
+ * e o pai é o vizinho que leva a ela pelo menor caminho (vetor de distâncias)
+ * As arestas de um nó são o pai e os vizinhos que o escolheram como pai
+ * A árvore se refaz sozinha quando um vizinho sai: basta recalcular e anunciar de novo
+ */
+public class ArvoreDifusao {
+    // Limita a contagem ao infinito quando a raiz some: acima disso o nó vira a própria raiz
+    private static final int DISTANCIA_MAX = 32;
+
+    private final String idNo;
+    private final Map<String, Anuncio> anuncios = new HashMap<>(); // Último anúncio de cada vizinho
+    private String raiz;
+    private int distancia;
+    private String pai; // null na raiz
+    private long versao = System.currentTimeMillis();
+
+    public ArvoreDifusao(String idNo) {
+        this.idNo = idNo;
+        this.raiz = idNo;
+    }
+
+    /**
+     * Registra o anúncio de um vizinho; anúncios fora de ordem (versão menor) são ignorados
+     * @return true se a posição deste nó na árvore mudou e precisa ser anunciada
+     */
+    public synchronized boolean registrarAnuncio(String idVizinho, String raizVizinho, int distanciaVizinho,
+                                                 String paiVizinho, long versaoVizinho) {
+        Anuncio anterior = anuncios.get(idVizinho);
+        if (anterior != null && anterior.versao >= versaoVizinho) {
+            return false;
+        }
+        anuncios.put(idVizinho, new Anuncio(raizVizinho, distanciaVizinho, paiVizinho, versaoVizinho));
+        return recalcular();
+    }
+
+    public synchronized boolean conhece(String idVizinho) {
+        return anuncios.containsKey(idVizinho);
+    }
+
+    // Vizinho saiu: esquece o anúncio dele e escolhe outro caminho até a raiz
+    public synchronized boolean removerVizinho(String idVizinho) {
+        if (anuncios.remove(idVizinho) == null && !idVizinho.equals(pai)) {
+            return false;
+        }
+        return recalcular();
+    }
+
+    private boolean recalcular() {
+        String melhorRaiz = idNo;
+        int melhorDistancia = 0;
+        String melhorPai = null;
+
+        for (Map.Entry<String, Anuncio> entrada : anuncios.entrySet()) {
+            Anuncio anuncio = entrada.getValue();
+            // Quem já é filho deste nó não pode ser o pai (evita laços de dois nós)
+            if (idNo.equals(anuncio.pai) || anuncio.distancia + 1 > DISTANCIA_MAX) {
+                continue;
+            }
+            int comparacao = anuncio.raiz.compareTo(melhorRaiz);
+            int distanciaCandidata = anuncio.distancia + 1;
+            if (comparacao < 0
+                    || (comparacao == 0 && melhorPai != null && (distanciaCandidata < melhorDistancia
+                        || (distanciaCandidata == melhorDistancia && entrada.getKey().compareTo(melhorPai) < 0)))) {
+                melhorRaiz = anuncio.raiz;
+                melhorDistancia = distanciaCandidata;
+                melhorPai = entrada.getKey();
+            }
+        }
+
+        boolean mudou = !melhorRaiz.equals(raiz) || melhorDistancia != distancia
+            || (melhorPai == null ? pai != null : !melhorPai.equals(pai));
+        if (mudou) {
+            raiz = melhorRaiz;
+            distancia = melhorDistancia;
+            pai = melhorPai;
+            versao++;
+        }
+        return mudou;
+    }
+
+    /**
+     * Aresta da árvore: o pai ou um filho
+     * Vizinho que ainda não anunciou conta como aresta: na dúvida, a mensagem segue por ele
+     */
+    public synchronized boolean isAresta(String idVizinho) {
+        if (idVizinho.equals(pai)) {
+            return true;
+        }
+        Anuncio anuncio = anuncios.get(idVizinho);
+        return anuncio == null || idNo.equals(anuncio.pai);
+    }
+
+    public synchronized Set<String> getFilhos() {
+        Set<String> filhos = new LinkedHashSet<>();
+        for (Map.Entry<String, Anuncio> entrada : anuncios.entrySet()) {
+            if (idNo.equals(entrada.getValue().pai)) {
+                filhos.add(entrada.getKey());
+            }
+        }
+        return filhos;
+    }
+
+    public synchronized String getRaiz() {
+        return raiz;
+    }
+
+    public synchronized int getDistancia() {
+        return distancia;
+    }
+
+    public synchronized String getPai() {
+        return pai;
+    }
+
+    public synchronized long getVersao() {
+        return versao;
+    }
+
+    // Resumo para exibição de métricas
+    public synchronized String resumo() {
+        return "raiz=" + raiz + ", distancia=" + distancia + ", pai=" + (pai == null ? "-" : pai)
+            + ", filhos=" + getFilhos();
+    }
+
+    private static class Anuncio {
+        final String raiz;
+        final int distancia;
+        final String pai;
+        final long versao;
+
+        Anuncio(String raiz, int distancia, String pai, long versao) {
+            this.raiz = raiz;
+            this.distancia = distancia;
+            this.pai = pai;
+            this.versao = versao;
+        }
+    }
+}
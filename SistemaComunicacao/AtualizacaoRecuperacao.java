@@ -0,0 +1,83 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Transferência de estado de um nó em recuperação
+ * O nó envia aos vizinhos até onde recebeu de cada remetente; cada vizinho responde com uma
+ * oferta (até onde vai enviar de cada um) e transmite as faixas em sequência pelo canal
+ * A recuperação termina quando todas as ofertas chegaram e foram alcançadas, ou quando
+ * nada novo chega por um prazo (o que nenhum vizinho guardava fica para os NACKs)
+ */
+public class AtualizacaoRecuperacao {
+    private final long inicioNanos = System.nanoTime();
+    private final long recebidasInicio;  // Total recebido em ordem (soma por remetente) ao começar
+    private final Set<String> aguardandoOfertas;
+    private int[] alvo = new int[16];  // Maior sequência oferecida de cada remetente, pelo índice
+    private long recebidasAnterior = -1;
+    private long ultimoProgressoNanos = inicioNanos;
+
+    public AtualizacaoRecuperacao(Collection<String> vizinhos, long recebidasInicio) {
+        this.aguardandoOfertas = new HashSet<>(vizinhos);
+        this.recebidasInicio = recebidasInicio;
+    }
+
+    // Oferta de um vizinho: eleva o alvo de cada remetente listado
+    public synchronized void registrarOferta(String idVizinho, int[] indices, int[] ateSeq) {
+        aguardandoOfertas.remove(idVizinho);
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i] >= alvo.length) {
+                alvo = Arrays.copyOf(alvo, Math.max(alvo.length * 2, indices[i] + 1));
+            }
+            alvo[indices[i]] = Math.max(alvo[indices[i]], ateSeq[i]);
+        }
+        ultimoProgressoNanos = System.nanoTime();
+    }
+
+    // Vizinho saiu antes de responder: não há mais oferta a esperar dele
+    public synchronized void descartarVizinho(String idVizinho) {
+        aguardandoOfertas.remove(idVizinho);
+    }
+
+    /**
+     * @param recebidoAte maior sequência recebida em ordem de cada remetente, pelo índice
+     * @return true se todas as ofertas chegaram e nenhum remetente está abaixo do alvo
+     */
+    public synchronized boolean alcancada(EstadoRemetente[] recebidoAte) {
+        if (!aguardandoOfertas.isEmpty()) {
+            return false;
+        }
+        for (int indice = 0; indice < alvo.length; indice++) {
+            if (alvo[indice] == 0) {
+                continue;
+            }
+            if (indice >= recebidoAte.length || recebidoAte[indice] == null
+                    || recebidoAte[indice].getUltimaSequencia() < alvo[indice]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Acompanha o total recebido em ordem e diz se ele parou de avançar
+     * @return true se nada novo chegou (nem oferta) desde prazoNanos atrás
+     */
+    public synchronized boolean estagnada(long recebidas, long agora, long prazoNanos) {
+        if (recebidas != recebidasAnterior) {
+            recebidasAnterior = recebidas;
+            ultimoProgressoNanos = agora;
+            return false;
+        }
+        return agora - ultimoProgressoNanos >= prazoNanos;
+    }
+
+    public long getRecebidasInicio() {
+        return recebidasInicio;
+    }
+
+    public long getDuracaoMs() {
+        return (System.nanoTime() - inicioNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,149 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compara a serialização Java padrão de Mensagem com o CodecMensagem
+ * Mede bytes por mensagem e ns/op de codificação e decodificação
+ * Uso: java BenchmarkCodecMensagem [quantidade]
+ */
+public class BenchmarkCodecMensagem {
+    private static final int RODADAS_AQUECIMENTO = 5;
+    private static final int RODADAS_MEDICAO = 10;
+
+    public static void main(String[] args) throws Exception {
+        int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        List<Mensagem> mensagens = gerarMensagens(quantidade);
+
+        System.out.println("=== BENCHMARK CODEC DE MENSAGEM (" + quantidade + " mensagens) ===");
+        System.out.printf("%-32s %12s %14s %14s%n", "Formato", "bytes/msg", "codif. ns/op", "decodif. ns/op");
+
+        medirSerializacaoPorChamada(mensagens);
+        medirSerializacaoEmFluxo(mensagens);
+        medirCodec(mensagens);
+    }
+
+    // Várias origens, sequências crescentes e timestamps próximos, como no tráfego real
+    private static List<Mensagem> gerarMensagens(int quantidade) {
+        List<Mensagem> mensagens = new ArrayList<>(quantidade);
+        long base = System.currentTimeMillis();
+        for (int i = 0; i < quantidade; i++) {
+            String remetente = "No" + (i % 5);
+            mensagens.add(new Mensagem(remetente, i / 5 + 1, "mensagem de teste " + i, base + i));
+        }
+        return mensagens;
+    }
+
+    // Um ObjectOutputStream por mensagem: equivale a uma chamada RMI por mensagem
+    private static void medirSerializacaoPorChamada(List<Mensagem> mensagens) throws Exception {
+        long bytesTotais = 0;
+        List<byte[]> codificadas = new ArrayList<>(mensagens.size());
+        for (Mensagem msg : mensagens) {
+            byte[] bytes = serializar(msg);
+            bytesTotais += bytes.length;
+            codificadas.add(bytes);
+        }
+
+        long codificacao = medir(() -> {
+            for (Mensagem msg : mensagens) {
+                serializar(msg);
+            }
+        });
+        long decodificacao = medir(() -> {
+            for (byte[] bytes : codificadas) {
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    in.readObject();
+                }
+            }
+        });
+
+        imprimir("Serializable (stream por msg)", bytesTotais, mensagens.size(), codificacao, decodificacao);
+    }
+
+    // Um único ObjectOutputStream para todas: descritor de classe escrito uma só vez
+    private static void medirSerializacaoEmFluxo(List<Mensagem> mensagens) throws Exception {
+        byte[] fluxo = serializarTodas(mensagens);
+
+        long codificacao = medir(() -> serializarTodas(mensagens));
+        long decodificacao = medir(() -> {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(fluxo))) {
+                for (int i = 0; i < mensagens.size(); i++) {
+                    in.readObject();
+                }
+            }
+        });
+
+        imprimir("Serializable (stream único)", fluxo.length, mensagens.size(), codificacao, decodificacao);
+    }
+
+    private static void medirCodec(List<Mensagem> mensagens) throws Exception {
+        byte[] fluxo = codificarTodas(mensagens);
+
+        long codificacao = medir(() -> codificarTodas(mensagens));
+        long decodificacao = medir(() -> {
+            CodecMensagem codec = new CodecMensagem();
+            ByteArrayInputStream in = new ByteArrayInputStream(fluxo);
+            for (int i = 0; i < mensagens.size(); i++) {
+                codec.decodificar(in);
+            }
+        });
+
+        imprimir("CodecMensagem v" + CodecMensagem.VERSAO, fluxo.length, mensagens.size(), codificacao, decodificacao);
+    }
+
+    private static byte[] serializar(Mensagem msg) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(msg);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] serializarTodas(List<Mensagem> mensagens) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            for (Mensagem msg : mensagens) {
+                out.writeObject(msg);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] codificarTodas(List<Mensagem> mensagens) {
+        CodecMensagem codec = new CodecMensagem();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (Mensagem msg : mensagens) {
+            codec.codificar(msg, bytes);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Retorna o melhor tempo total (ns) entre as rodadas de medição
+    private static long medir(Tarefa tarefa) throws Exception {
+        for (int i = 0; i < RODADAS_AQUECIMENTO; i++) {
+            tarefa.executar();
+        }
+        long melhor = Long.MAX_VALUE;
+        for (int i = 0; i < RODADAS_MEDICAO; i++) {
+            long inicio = System.nanoTime();
+            tarefa.executar();
+            melhor = Math.min(melhor, System.nanoTime() - inicio);
+        }
+        return melhor;
+    }
+
+    private static void imprimir(String formato, long bytes, int quantidade, long codificacao, long decodificacao) {
+        System.out.printf("%-32s %12.1f %14.1f %14.1f%n", formato,
+            (double) bytes / quantidade,
+            (double) codificacao / quantidade,
+            (double) decodificacao / quantidade);
+    }
+
+    private interface Tarefa {
+        void executar() throws Exception;
+    }
+}
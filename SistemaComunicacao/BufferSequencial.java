@@ -0,0 +1,162 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Buffer circular de mensagens indexado por número de sequência
+ * Mantém a faixa [inicio, fim]: obter, inserir e descartar pelo início custam O(1),
+ * e ler um intervalo custa apenas o tamanho do intervalo
+ * A capacidade cresce em potências de 2 quando a faixa não cabe mais
+ */
+public class BufferSequencial {
+    private Mensagem[] slots;
+    private int mascara;
+    private int inicio;     // menor sequência ainda mantida
+    private int fim;        // maior sequência já inserida
+    private int quantidade; // slots ocupados
+
+    public BufferSequencial(int capacidadeInicial) {
+        int capacidade = Integer.highestOneBit(Math.max(2, capacidadeInicial - 1)) << 1;
+        this.slots = new Mensagem[capacidade];
+        this.mascara = capacidade - 1;
+        this.inicio = 1;
+        this.fim = 0;
+    }
+
+    public synchronized void adicionar(Mensagem msg) {
+        int seq = msg.getSequenceNumber();
+        if (seq < inicio) {
+            return; // Já liberada
+        }
+        garantirCapacidade(seq);
+        int indice = seq & mascara;
+        if (slots[indice] == null) {
+            quantidade++;
+        }
+        slots[indice] = msg;
+        if (seq > fim) {
+            fim = seq;
+        }
+    }
+
+    public synchronized Mensagem obter(int seq) {
+        if (seq < inicio || seq > fim) {
+            return null;
+        }
+        return slots[seq & mascara];
+    }
+
+    public synchronized boolean contem(int seq) {
+        return obter(seq) != null;
+    }
+
+    // Mensagens presentes em [de, ate], em ordem de sequência
+    public synchronized List<Mensagem> obterIntervalo(int de, int ate) {
+        int primeira = Math.max(de, inicio);
+        int ultima = Math.min(ate, fim);
+        List<Mensagem> intervalo = new ArrayList<>(Math.max(0, ultima - primeira + 1));
+        for (int seq = primeira; seq <= ultima; seq++) {
+            Mensagem msg = slots[seq & mascara];
+            if (msg != null) {
+                intervalo.add(msg);
+            }
+        }
+        return intervalo;
+    }
+
+    /**
+     * Faixas ausentes entre 'apos' e a maior sequência presente
+     * @return pares [inicio, fim] achatados: {inicio0, fim0, inicio1, fim1, ...}
+     */
+    public synchronized int[] lacunas(int apos) {
+        int[] faixas = new int[8];
+        int total = 0;
+        int anterior = apos;
+        for (int seq = Math.max(apos + 1, inicio); seq <= fim; seq++) {
+            if (slots[seq & mascara] == null) {
+                continue;
+            }
+            if (seq > anterior + 1) {
+                if (total + 2 > faixas.length) {
+                    faixas = Arrays.copyOf(faixas, faixas.length * 2);
+                }
+                faixas[total++] = anterior + 1;
+                faixas[total++] = seq - 1;
+            }
+            anterior = seq;
+        }
+        return Arrays.copyOf(faixas, total);
+    }
+
+    /**
+     * Descarta tudo até seq (inclusive), avançando o início do buffer
+     * @return quantidade de mensagens liberadas
+     */
+    public synchronized int liberarAte(int seq) {
+        int liberadas = 0;
+        int ultima = Math.min(seq, fim);
+        for (; inicio <= ultima; inicio++) {
+            int indice = inicio & mascara;
+            if (slots[indice] != null) {
+                slots[indice] = null;
+                liberadas++;
+            }
+        }
+        if (seq >= inicio) {
+            inicio = seq + 1;
+            fim = Math.max(fim, seq);
+        }
+        quantidade -= liberadas;
+        return liberadas;
+    }
+
+    // Remove uma única mensagem; se era a primeira, o início avança
+    public synchronized void remover(int seq) {
+        if (seq < inicio || seq > fim) {
+            return;
+        }
+        int indice = seq & mascara;
+        if (slots[indice] != null) {
+            slots[indice] = null;
+            quantidade--;
+        }
+        while (inicio <= fim && slots[inicio & mascara] == null) {
+            inicio++;
+        }
+    }
+
+    public synchronized void limpar() {
+        liberarAte(fim);
+    }
+
+    public synchronized int getInicio() {
+        return inicio;
+    }
+
+    public synchronized int getFim() {
+        return fim;
+    }
+
+    public synchronized int tamanho() {
+        return quantidade;
+    }
+
+    // Dobra a capacidade até que [inicio, seq] caiba, preservando as posições
+    private void garantirCapacidade(int seq) {
+        long necessario = (long) seq - inicio + 1;
+        if (necessario <= slots.length) {
+            return;
+        }
+        int capacidade = slots.length;
+        while (capacidade < necessario) {
+            capacidade <<= 1;
+        }
+        Mensagem[] novos = new Mensagem[capacidade];
+        int novaMascara = capacidade - 1;
+        for (int s = inicio; s <= fim; s++) {
+            novos[s & novaMascara] = slots[s & mascara];
+        }
+        slots = novos;
+        mascara = novaMascara;
+    }
+}
@@ -0,0 +1,463 @@
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Canal de saída dedicado a um vizinho
+ * Cada vizinho tem sua própria fila, drenada por uma thread própria:
+ * um vizinho lento não atrasa os demais nem quem chama broadcast
+ * Mensagens novas só saem dentro da janela de congestionamento (AIMD) do enlace
+ * Mensagens repassadas de outros remetentes não têm sequência neste enlace: passam sem janela,
+ * assim como as próprias no modo fofoca, que não tem confirmações
+ * Um envio que falha não derruba o canal: o lote volta para a fila e sai de novo após uma espera
+ * crescente; quem decide se o vizinho está fora é o detector de falhas, que só o marca como suspeito
+ */
+public class CanalVizinho {
+    private final No dono;
+    private final NoInterface vizinho;
+    private final String idVizinho;
+    private final int indiceVizinho; // Índice do vizinho no DicionarioNos
+    private final int indiceDono;
+    private final LinkedBlockingDeque<Mensagem> fila; // Retransmissões entram pela frente
+    private final Thread trabalhador;
+    private volatile boolean ativo;
+
+    // Maior sequência própria que o vizinho confirmou ter recebido em ordem
+    private volatile int confirmadoAte;
+
+    // Maior sequência própria que o vizinho aceita receber agora (confirmado + créditos anunciados)
+    private volatile int limiteCredito;
+
+    // Janela de congestionamento em mensagens: +1 por janela confirmada, metade a cada perda
+    private static final double JANELA_MIN = 2;       // Com duas em trânsito, a perda da primeira ainda gera NACK
+    private static final double JANELA_INICIAL = 16;
+    private static final double JANELA_MAX = 4096;
+    private double janela = JANELA_INICIAL;   // guardada pelo monitor do canal
+    private volatile int maiorEnviada;        // maior sequência já enviada por este canal
+    private int recuperacaoAte;               // perdas até aqui já reduziram a janela uma vez
+
+    // RTT do enlace, medido por ACK cumulativo: uma mensagem cronometrada por vez
+    private final EstimadorRtt rtt = new EstimadorRtt();
+    private int seqCronometrada;              // 0 = nenhuma
+    private long instanteEnvio;
+
+    // Último envio por este canal: enlace ocupado dispensa ping
+    private volatile long ultimoEnvioNanos = System.nanoTime();
+    private final AtomicBoolean pingEmAndamento = new AtomicBoolean();
+
+    // Suspeita do detector phi: o canal continua aberto e volta ao normal com o próximo contato
+    private final AtomicBoolean suspeito = new AtomicBoolean();
+    private volatile long suspeitoDesdeNanos;
+
+    // Espera antes de tentar de novo um envio que falhou: dobra a cada falha seguida
+    private static final long ESPERA_REENVIO_MIN_MS = 50;
+    private static final long ESPERA_REENVIO_MAX_MS = 5000;
+    private long esperaReenvioMs = ESPERA_REENVIO_MIN_MS; // só a thread do canal usa
+
+    // Retransmissões deste enlace, em ordem de sequência (guardadas pelo monitor do canal)
+    private final ArrayDeque<RetransmissaoPendente> retransmissoes = new ArrayDeque<>();
+    private final ArrayDeque<RetransmissaoPendente> aguardandoEnvio = new ArrayDeque<>(); // Ainda não armadas
+    private boolean retransmissaoEsgotada;    // Desistiu das tentativas neste enlace; as demais seguem
+
+    /**
+     * @param confirmadoInicial sequências próprias que este vizinho não vai receber pelo canal
+     *        (anteriores à conexão); a janela de congestionamento começa a contar depois delas
+     */
+    public CanalVizinho(No dono, NoInterface vizinho, String idVizinho, int indiceVizinho, 
+                        int confirmadoInicial, int creditoInicial) {
+        this.dono = dono;
+        this.vizinho = vizinho;
+        this.idVizinho = idVizinho;
+        this.indiceVizinho = indiceVizinho;
+        this.indiceDono = DicionarioNos.getInstancia().indice(dono.getIdNo());
+        this.confirmadoAte = confirmadoInicial;
+        this.limiteCredito = creditoInicial;
+        this.fila = new LinkedBlockingDeque<>();
+        this.trabalhador = new Thread(this::drenar, "saida-" + dono.getIdNo() + "-" + idVizinho);
+        this.trabalhador.setDaemon(true);
+    }
+
+    public void iniciar() {
+        ativo = true;
+        trabalhador.start();
+    }
+
+    public void encerrar() {
+        ativo = false;
+        synchronized (this) {
+            notifyAll();
+            cancelarRetransmissoesAte(Integer.MAX_VALUE);
+        }
+        trabalhador.interrupt();
+        fila.clear();
+    }
+
+    public synchronized void registrarRetransmissao(RetransmissaoPendente retransmissao) {
+        retransmissoes.addLast(retransmissao);
+        aguardandoEnvio.addLast(retransmissao);
+    }
+
+    /**
+     * Tentativas esgotadas em uma mensagem: para de retransmitir por este enlace (só por ele)
+     * @return true se o enlace ainda não tinha desistido
+     */
+    public synchronized boolean desistirRetransmissoes() {
+        cancelarRetransmissoesAte(Integer.MAX_VALUE);
+        boolean primeira = !retransmissaoEsgotada;
+        retransmissaoEsgotada = true;
+        return primeira;
+    }
+
+    // Nova rodada depois da desistência: true para quem deve reenviar o que não foi confirmado
+    public synchronized boolean retomarRetransmissoes() {
+        boolean esgotada = retransmissaoEsgotada;
+        retransmissaoEsgotada = false;
+        return esgotada;
+    }
+
+    public synchronized boolean isRetransmissaoEsgotada() {
+        return retransmissaoEsgotada;
+    }
+
+    // Cancela pela frente da fila as retransmissões já confirmadas
+    private void cancelarRetransmissoesAte(int ateSeq) {
+        RetransmissaoPendente primeira;
+        while ((primeira = retransmissoes.peekFirst()) != null 
+                && primeira.getMensagem().getSequenceNumber() <= ateSeq) {
+            retransmissoes.pollFirst().cancelar();
+        }
+        while ((primeira = aguardandoEnvio.peekFirst()) != null 
+                && primeira.getMensagem().getSequenceNumber() <= ateSeq) {
+            aguardandoEnvio.pollFirst();
+        }
+    }
+
+    // O RTO conta a partir do envio, não do tempo parado na fila do canal
+    private void armarRetransmissoesAte(int ateSeq) {
+        RetransmissaoPendente primeira;
+        while ((primeira = aguardandoEnvio.peekFirst()) != null 
+                && primeira.getMensagem().getSequenceNumber() <= ateSeq) {
+            aguardandoEnvio.pollFirst().agendar();
+        }
+    }
+
+    // Apenas enfileira: o envio remoto acontece na thread do canal
+    public void enfileirar(Mensagem msg) {
+        if (ativo) {
+            fila.offerLast(msg);
+        }
+    }
+
+    /**
+     * Retransmissões passam à frente das mensagens novas: são elas que destravam
+     * a janela quando as novas estão esperando por ACK
+     */
+    public void reenviar(List<Mensagem> msgs) {
+        if (!ativo) {
+            return;
+        }
+        for (int i = msgs.size() - 1; i >= 0; i--) {
+            fila.offerFirst(msgs.get(i));
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    // Laço da thread do canal: agrupa o que estiver na fila e envia em uma chamada
+    private void drenar() {
+        while (ativo) {
+            List<Mensagem> lote = new ArrayList<>();
+            int ackAte = 0;
+            try {
+                Mensagem primeira = fila.takeFirst();
+                if (!cabeNaJanela(primeira)) {
+                    fila.offerFirst(primeira);
+                    aguardarJanela();
+                    continue;
+                }
+
+                lote.add(primeira);
+                coletarLote(lote);
+
+                // ACK pendente para este vizinho segue de carona no lote; mensagens repassadas
+                // também usam essa forma, que identifica este nó como o vizinho de origem
+                ackAte = dono.retirarAckPendente(indiceVizinho);
+                if (ackAte > 0 || contemRepassadas(lote)) {
+                    vizinho.receiveBatch(lote, dono.getIdNo(), ackAte, dono.creditoAnunciado());
+                } else {
+                    vizinho.receiveBatch(lote);
+                }
+                registrarEnvio(lote);
+                esperaReenvioMs = ESPERA_REENVIO_MIN_MS;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RemoteException e) {
+                GerenciadorLog.getInstancia().registrar(dono.getIdNo(),
+                    "Falha ao enviar para vizinho " + idVizinho + ": " + e.getMessage() 
+                    + "; nova tentativa em " + esperaReenvioMs + " ms");
+                for (int i = lote.size() - 1; i >= 0; i--) {
+                    fila.offerFirst(lote.get(i));
+                }
+                dono.devolverAckPendente(indiceVizinho, ackAte); // O ACK de carona não chegou
+                if (!aguardarNovaTentativa()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Espera antes de reenviar o lote que falhou; false se o canal foi encerrado
+    private boolean aguardarNovaTentativa() {
+        try {
+            Thread.sleep(esperaReenvioMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        esperaReenvioMs = Math.min(ESPERA_REENVIO_MAX_MS, esperaReenvioMs * 2);
+        return ativo;
+    }
+
+    /**
+     * Completa o lote até o tamanho máximo, até a janela de coalescência expirar
+     * ou até a próxima mensagem sair da janela de congestionamento (ela volta para a frente da fila)
+     */
+    private void coletarLote(List<Mensagem> lote) throws InterruptedException {
+        int tamanhoMax = dono.getTamanhoMaxLote();
+        long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(dono.getJanelaLote());
+
+        while (lote.size() < tamanhoMax) {
+            Mensagem msg = fila.pollFirst();
+            if (msg == null) {
+                long restante = prazo - System.nanoTime();
+                if (restante <= 0) {
+                    break;
+                }
+                msg = fila.pollFirst(restante, TimeUnit.NANOSECONDS);
+                if (msg == null) {
+                    break;
+                }
+            }
+            if (!cabeNaJanela(msg)) {
+                fila.offerFirst(msg);
+                break;
+            }
+            lote.add(msg);
+        }
+    }
+
+    // Retransmissões e repasses sempre cabem; mensagens novas só até confirmado + janela
+    private synchronized boolean cabeNaJanela(Mensagem msg) {
+        if (!isSequenciada(msg)) {
+            return true;
+        }
+        int seq = msg.getSequenceNumber();
+        return seq <= maiorEnviada || seq <= confirmadoAte + (int) janela;
+    }
+
+    // Espera até a mensagem da frente caber: um ACK abre a janela ou uma retransmissão passa à frente
+    private synchronized void aguardarJanela() throws InterruptedException {
+        while (ativo) {
+            Mensagem primeira = fila.peekFirst();
+            if (primeira == null || cabeNaJanela(primeira)) {
+                return;
+            }
+            wait();
+        }
+    }
+
+    private boolean isPropria(Mensagem msg) {
+        return msg.getIndiceRemetente() == indiceDono;
+    }
+
+    // Sujeita à janela e aos ACKs deste enlace
+    private boolean isSequenciada(Mensagem msg) {
+        return isPropria(msg) && dono.getModoDifusao() != ModoDifusao.FOFOCA;
+    }
+
+    private boolean contemRepassadas(List<Mensagem> lote) {
+        for (Mensagem msg : lote) {
+            if (!isPropria(msg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void registrarEnvio(List<Mensagem> lote) {
+        int anterior = maiorEnviada;
+        int maior = anterior;
+        for (Mensagem msg : lote) {
+            if (!isSequenciada(msg)) {
+                continue; // A sequência é do remetente original ou não é confirmada neste enlace
+            }
+            int seq = msg.getSequenceNumber();
+            if (seq <= anterior && seq <= seqCronometrada) {
+                seqCronometrada = 0; // Karn: o ACK seria ambíguo entre o envio original e a retransmissão
+            }
+            maior = Math.max(maior, seq);
+        }
+        if (maior > anterior && seqCronometrada == 0) {
+            seqCronometrada = maior;
+            instanteEnvio = System.nanoTime();
+        }
+        maiorEnviada = maior;
+        ultimoEnvioNanos = System.nanoTime();
+        armarRetransmissoesAte(maior);
+    }
+
+    // Já saiu por este canal ao menos uma vez (só estas contam como perda)
+    public boolean jaEnviou(int seq) {
+        return seq <= maiorEnviada;
+    }
+
+    /**
+     * Diminuição multiplicativa: timeout ou NACK de uma mensagem enviada
+     * Várias perdas da mesma janela reduzem uma única vez
+     */
+    public synchronized void reduzirJanela(int seqPerdida) {
+        if (seqPerdida <= recuperacaoAte) {
+            return;
+        }
+        janela = Math.max(JANELA_MIN, janela / 2);
+        recuperacaoAte = maiorEnviada;
+    }
+
+    // Timeout de retransmissão: além de reduzir a janela, dobra o RTO do enlace (uma vez por janela)
+    public synchronized void registrarTimeout(int seqPerdida) {
+        if (seqPerdida <= recuperacaoAte) {
+            return;
+        }
+        rtt.registrarTimeout();
+        reduzirJanela(seqPerdida);
+    }
+
+    public long getRto() {
+        return rtt.getRto();
+    }
+
+    // ACK cumulativo: só avança, ACKs atrasados ou duplicados são ignorados
+    // Aumento aditivo: cerca de +1 mensagem na janela a cada janela inteira confirmada
+    public synchronized void confirmarAte(int ateSeq) {
+        if (ateSeq > confirmadoAte) {
+            int confirmadas = ateSeq - confirmadoAte;
+            confirmadoAte = ateSeq;
+            if (seqCronometrada > 0 && ateSeq >= seqCronometrada) {
+                rtt.registrarAmostra((System.nanoTime() - instanteEnvio) / 1_000_000.0);
+                seqCronometrada = 0;
+            } else {
+                rtt.cancelarBackoff();
+            }
+            cancelarRetransmissoesAte(ateSeq);
+            janela = Math.min(JANELA_MAX, janela + confirmadas / janela);
+            notifyAll();
+        }
+    }
+
+    public synchronized int getJanelaCongestionamento() {
+        return (int) janela;
+    }
+
+    // Créditos do vizinho: o limite só avança, anúncios atrasados são ignorados
+    public synchronized void atualizarCredito(int ateSeq, int credito) {
+        int limite = ateSeq + credito;
+        if (limite > limiteCredito) {
+            limiteCredito = limite;
+        }
+    }
+
+    public int getLimiteCredito() {
+        return limiteCredito;
+    }
+
+    public int getConfirmadoAte() {
+        return confirmadoAte;
+    }
+
+    public NoInterface getVizinho() {
+        return vizinho;
+    }
+
+    public String getIdVizinho() {
+        return idVizinho;
+    }
+
+    public int getIndiceVizinho() {
+        return indiceVizinho;
+    }
+
+    public long getUltimoEnvioNanos() {
+        return ultimoEnvioNanos;
+    }
+
+    /**
+     * Ping assíncrono: no máximo um em andamento por vizinho, para que um vizinho
+     * travado não acumule chamadas pendentes
+     */
+    public void enviarPing(ExecutorService executor) {
+        if (!pingEmAndamento.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    vizinho.heartbeat(dono.getIdNo());
+                    // Retorno do ping não é contato: no NIO ele só enfileira. Vale o que chega do vizinho
+                    ultimoEnvioNanos = System.nanoTime();
+                } catch (RemoteException e) {
+                    // Sem veredito aqui: a falta de contato aparece no phi do vizinho
+                    GerenciadorLog.getInstancia().registrar(dono.getIdNo(), 
+                        "Falha no ping para " + idVizinho + ": " + e.getMessage());
+                } finally {
+                    pingEmAndamento.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pingEmAndamento.set(false);
+        }
+    }
+
+    // true só para quem passou de normal a suspeito (a suspeita é tratada uma vez)
+    public boolean marcarSuspeito() {
+        if (!suspeito.compareAndSet(false, true)) {
+            return false;
+        }
+        suspeitoDesdeNanos = System.nanoTime();
+        return true;
+    }
+
+    // Há quanto tempo o vizinho está sob suspeita (0 se não está)
+    public long tempoSuspeitoNanos(long agora) {
+        return suspeito.get() ? agora - suspeitoDesdeNanos : 0;
+    }
+
+    // true só para quem desfez a suspeita
+    public boolean limparSuspeita() {
+        return suspeito.compareAndSet(true, false);
+    }
+
+    public boolean isSuspeito() {
+        return suspeito.get();
+    }
+
+    // Mensagens aguardando envio para este vizinho
+    public int getProfundidadeFila() {
+        return fila.size();
+    }
+
+    // Resumo para exibição de métricas
+    public String resumo() {
+        return idVizinho + ": fila=" + getProfundidadeFila() + ", confirmado=" + confirmadoAte 
+            + ", credito ate=" + limiteCredito + ", janela=" + getJanelaCongestionamento()
+            + String.format(", srtt=%.1fms, rto=%dms", rtt.getSrtt(), rtt.getRto())
+            + (isSuspeito() ? ", suspeito" : "");
+    }
+}
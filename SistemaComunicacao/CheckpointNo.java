@@ -0,0 +1,145 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Ponto de controle dos contadores do protocolo, para um reinício rápido
+ * Guarda a sequência própria e, de cada remetente, até onde as mensagens foram entregues
+ * Arquivo: [versao:int][no:utf][gravadoEm:long][contador:int][n:int]
+ *          [(remetente:utf, entregueAte:int, dependenciaEnviada:int)...][crc32:int]
+ * A gravação vai para um arquivo temporário, sincronizado e renomeado por cima do anterior:
+ * quem lê encontra o checkpoint antigo inteiro ou o novo inteiro, nunca uma mistura
+ */
+public class CheckpointNo {
+    private static final int VERSAO = 1;
+
+    private final String idNo;
+    private final long gravadoEm;
+    private final int contadorSequencia;
+    private final List<Marca> marcas;
+
+    public CheckpointNo(String idNo, int contadorSequencia, List<Marca> marcas) {
+        this(idNo, System.currentTimeMillis(), contadorSequencia, marcas);
+    }
+
+    private CheckpointNo(String idNo, long gravadoEm, int contadorSequencia, List<Marca> marcas) {
+        this.idNo = idNo;
+        this.gravadoEm = gravadoEm;
+        this.contadorSequencia = contadorSequencia;
+        this.marcas = Collections.unmodifiableList(marcas);
+    }
+
+    public void gravar(Path arquivo) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + marcas.size() * 24);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(VERSAO);
+        out.writeUTF(idNo);
+        out.writeLong(gravadoEm);
+        out.writeInt(contadorSequencia);
+        out.writeInt(marcas.size());
+        for (Marca marca : marcas) {
+            out.writeUTF(marca.remetente);
+            out.writeInt(marca.entregueAte);
+            out.writeInt(marca.dependenciaEnviada);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        Path diretorio = arquivo.toAbsolutePath().getParent();
+        Files.createDirectories(diretorio);
+        Path temporario = diretorio.resolve(arquivo.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer conteudo = ByteBuffer.wrap(bytes.toByteArray());
+            while (conteudo.hasRemaining()) {
+                canal.write(conteudo);
+            }
+            canal.force(true);
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // A renomeação só é durável com o diretório sincronizado (não suportado em todos os sistemas)
+        try (FileChannel canalDiretorio = FileChannel.open(diretorio, StandardOpenOption.READ)) {
+            canalDiretorio.force(true);
+        } catch (IOException e) {
+            // Sem fsync de diretório: numa queda do sistema, pode voltar o checkpoint anterior
+        }
+    }
+
+    /**
+     * @return o checkpoint gravado, ou null se o arquivo não existe
+     * @throws IOException se o arquivo está corrompido ou é de outra versão
+     */
+    public static CheckpointNo ler(Path arquivo) throws IOException {
+        byte[] conteudo;
+        try {
+            conteudo = Files.readAllBytes(arquivo);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (conteudo.length < 4) {
+            throw new IOException("Checkpoint truncado: " + arquivo);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(conteudo, 0, conteudo.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(conteudo, conteudo.length - 4, 4).getInt()) {
+            throw new IOException("Checkpoint com CRC inválido: " + arquivo);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(conteudo, 0, conteudo.length - 4));
+        int versao = in.readInt();
+        if (versao != VERSAO) {
+            throw new IOException("Versão de checkpoint não suportada: " + versao);
+        }
+        String idNo = in.readUTF();
+        long gravadoEm = in.readLong();
+        int contadorSequencia = in.readInt();
+        int quantidade = in.readInt();
+        List<Marca> marcas = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            marcas.add(new Marca(in.readUTF(), in.readInt(), in.readInt()));
+        }
+        return new CheckpointNo(idNo, gravadoEm, contadorSequencia, marcas);
+    }
+
+    public String getIdNo() {
+        return idNo;
+    }
+
+    public long getGravadoEm() {
+        return gravadoEm;
+    }
+
+    public int getContadorSequencia() {
+        return contadorSequencia;
+    }
+
+    public List<Marca> getMarcas() {
+        return marcas;
+    }
+
+    // Marcas d'água de um remetente
+    public static class Marca {
+        final String remetente;
+        final int entregueAte;          // Tudo até aqui foi entregue à aplicação
+        final int dependenciaEnviada;   // Ordem causal: quanto disso já foi anunciado como dependência
+
+        public Marca(String remetente, int entregueAte, int dependenciaEnviada) {
+            this.remetente = remetente;
+            this.entregueAte = entregueAte;
+            this.dependenciaEnviada = dependenciaEnviada;
+        }
+    }
+}
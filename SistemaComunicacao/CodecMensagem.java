@@ -0,0 +1,205 @@
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificação binária compacta de Mensagem para uma conexão
+ * Formato (versão 1), por mensagem:
+ *   [cabeçalho:byte] versão nos 4 bits altos, bit 0 = remetente novo no dicionário
+ *   [remetente:varint] índice no dicionário da conexão (+ [tamanho:varint][utf8] se novo)
+ *   [sequência:varint]
+ *   [timestamp:varint zigzag] diferença para o timestamp anterior da conexão
+ *   [conteúdo:varint tamanho][utf8]
+ *   se bit 1 do cabeçalho: [quantidade:varint] e, por dependência causal,
+ *     [índice << 1 | novo:varint] (+ [tamanho:varint][utf8] se novo) [incremento:varint]
+ *   As dependências usam o mesmo dicionário dos remetentes, então custam poucos bytes cada
+ * O estado (dicionário e último timestamp) é por sentido da conexão,
+ * então as mensagens devem ser decodificadas na mesma ordem em que foram codificadas
+ * Tamanhos e quantidades lidos do fio são conferidos contra o que resta no quadro antes de
+ * qualquer alocação: um quadro malformado vira IOException, nunca uma alocação gigante
+ */
+public class CodecMensagem {
+    public static final int VERSAO = 1;
+    private static final int FLAG_REMETENTE_NOVO = 0x01;
+    private static final int FLAG_DEPENDENCIAS = 0x02;
+
+    // Limite de itens (mensagens de um lote, dependências, lacunas...) em um quadro
+    public static final int QUANTIDADE_MAX = 1 << 16;
+
+    // Estado de codificação (mensagens enviadas)
+    private final Map<String, Integer> dicionarioSaida;
+    private long ultimoTimestampSaida;
+
+    // Estado de decodificação (mensagens recebidas)
+    private final List<String> dicionarioEntrada;
+    private long ultimoTimestampEntrada;
+
+    public CodecMensagem() {
+        this.dicionarioSaida = new HashMap<>();
+        this.dicionarioEntrada = new ArrayList<>();
+    }
+
+    public synchronized void codificar(Mensagem msg, ByteArrayOutputStream out) {
+        Integer indice = dicionarioSaida.get(msg.getSenderId());
+        boolean novo = indice == null;
+        if (novo) {
+            indice = dicionarioSaida.size();
+            dicionarioSaida.put(msg.getSenderId(), indice);
+        }
+
+        String[] dependencias = msg.getDependencias();
+        out.write((VERSAO << 4) | (novo ? FLAG_REMETENTE_NOVO : 0) 
+            | (dependencias.length > 0 ? FLAG_DEPENDENCIAS : 0));
+        escreverVarint(out, indice);
+        if (novo) {
+            escreverTexto(out, msg.getSenderId());
+        }
+        escreverVarint(out, msg.getSequenceNumber());
+        escreverVarint(out, zigzag(msg.getTimestamp() - ultimoTimestampSaida));
+        ultimoTimestampSaida = msg.getTimestamp();
+        escreverTexto(out, msg.getConteudo());
+
+        if (dependencias.length > 0) {
+            int[] incrementos = msg.getIncrementos();
+            escreverVarint(out, dependencias.length);
+            for (int i = 0; i < dependencias.length; i++) {
+                Integer indiceDependencia = dicionarioSaida.get(dependencias[i]);
+                boolean dependenciaNova = indiceDependencia == null;
+                if (dependenciaNova) {
+                    indiceDependencia = dicionarioSaida.size();
+                    dicionarioSaida.put(dependencias[i], indiceDependencia);
+                }
+                escreverVarint(out, ((long) indiceDependencia << 1) | (dependenciaNova ? 1 : 0));
+                if (dependenciaNova) {
+                    escreverTexto(out, dependencias[i]);
+                }
+                escreverVarint(out, incrementos[i]);
+            }
+        }
+    }
+
+    public synchronized Mensagem decodificar(InputStream in) throws IOException {
+        int cabecalho = lerByte(in);
+        int versao = cabecalho >>> 4;
+        if (versao != VERSAO) {
+            throw new IOException("Versão de codificação não suportada: " + versao);
+        }
+
+        long indice = lerVarint(in);
+        String senderId;
+        if ((cabecalho & FLAG_REMETENTE_NOVO) != 0) {
+            senderId = lerTexto(in);
+            if (indice != dicionarioEntrada.size()) {
+                throw new IOException("Dicionário de remetentes fora de sincronia");
+            }
+            dicionarioEntrada.add(senderId);
+        } else {
+            if (indice >= dicionarioEntrada.size()) {
+                throw new IOException("Remetente desconhecido no dicionário: " + indice);
+            }
+            senderId = dicionarioEntrada.get((int) indice);
+        }
+
+        int sequenceNumber = (int) lerVarint(in);
+        long timestamp = ultimoTimestampEntrada + unzigzag(lerVarint(in));
+        ultimoTimestampEntrada = timestamp;
+        String conteudo = lerTexto(in);
+
+        if ((cabecalho & FLAG_DEPENDENCIAS) == 0) {
+            return new Mensagem(senderId, sequenceNumber, conteudo, timestamp);
+        }
+        int quantidade = lerQuantidade(in);
+        String[] dependencias = new String[quantidade];
+        int[] incrementos = new int[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            long chave = lerVarint(in);
+            long indiceDependencia = chave >>> 1;
+            if ((chave & 1) != 0) {
+                if (indiceDependencia != dicionarioEntrada.size()) {
+                    throw new IOException("Dicionário de remetentes fora de sincronia");
+                }
+                dicionarioEntrada.add(lerTexto(in));
+            } else if (indiceDependencia >= dicionarioEntrada.size()) {
+                throw new IOException("Dependência desconhecida no dicionário: " + indiceDependencia);
+            }
+            dependencias[i] = dicionarioEntrada.get((int) indiceDependencia);
+            incrementos[i] = (int) lerVarint(in);
+        }
+        return new Mensagem(senderId, sequenceNumber, conteudo, timestamp, dependencias, incrementos);
+    }
+
+    // Varint sem sinal (7 bits por byte, bit alto indica continuação)
+    public static void escreverVarint(ByteArrayOutputStream out, long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            out.write((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        out.write((int) valor);
+    }
+
+    public static long lerVarint(InputStream in) throws IOException {
+        long valor = 0;
+        for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+            int b = lerByte(in);
+            valor |= (long) (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IOException("Varint malformado");
+    }
+
+    /**
+     * Quantidade de itens a seguir no quadro: cada item ocupa ao menos um byte, então ela não
+     * pode passar do que resta no quadro (o stream deve ser um quadro já inteiro em memória)
+     */
+    public static int lerQuantidade(InputStream in) throws IOException {
+        return lerTamanho(in, QUANTIDADE_MAX);
+    }
+
+    // Tamanho em bytes ou em itens, conferido contra o restante do quadro e um teto
+    private static int lerTamanho(InputStream in, int maximo) throws IOException {
+        long valor = lerVarint(in);
+        if (valor > maximo || valor > in.available()) {
+            throw new IOException("Tamanho inválido no quadro: " + valor + " (restam " + in.available() + " bytes)");
+        }
+        return (int) valor;
+    }
+
+    private static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+
+    private static long unzigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    private static void escreverTexto(ByteArrayOutputStream out, String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        escreverVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String lerTexto(InputStream in) throws IOException {
+        int tamanho = lerTamanho(in, QuadroNio.TAMANHO_MAX);
+        byte[] bytes = in.readNBytes(tamanho);
+        if (bytes.length != tamanho) {
+            throw new EOFException("Texto truncado");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int lerByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Mensagem truncada");
+        }
+        return b;
+    }
+}
@@ -19,7 +19,7 @@ public class ComandoConectar extends ComandoBase {
         GerenciadorLog.getInstancia().registrar(no.getIdNo(), 
             "Procurando " + idNoDestino + " no registry...");
         
-        noConectado = RegistryManager.getInstancia().buscarNo(idNoDestino);
+        noConectado = no.buscarNo(idNoDestino);
         
         GerenciadorLog.getInstancia().registrar(no.getIdNo(), 
             "Encontrado, estabelecendo conexão...");
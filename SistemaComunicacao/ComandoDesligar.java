@@ -12,8 +12,8 @@ public class ComandoDesligar extends ComandoBase {
     @Override
     protected void executarInterno() throws Exception {
         metricas.imprimirRelatorio();
+        // O próprio nó se retira do transporte ao desligar
         no.desligar();
-        RegistryManager.getInstancia().removerNo(no.getIdNo());
         GerenciadorLog.getInstancia().registrar(no.getIdNo(), "Nó desligado");
         GerenciadorLog.getInstancia().fecharLogs();
         resultado = "Nó desligado com sucesso";
@@ -12,6 +12,22 @@ public class ComandoMostrarMetricas extends ComandoBase {
     @Override
     protected void executarInterno() throws Exception {
         metricas.imprimirRelatorio();
+        for (CanalVizinho canal : no.getCanais()) {
+            System.out.println("Canal " + canal.resumo());
+        }
+        System.out.println("Política de créditos: " + no.getPoliticaCredito() 
+            + ", aguardando créditos: " + no.getMensagensSemCredito());
+        System.out.println("Modo de difusão: " + no.getModoDifusao());
+        if (no.getModoDifusao() == ModoDifusao.ARVORE) {
+            System.out.println("Árvore de repasse: " + no.getArvore().resumo());
+        }
+        System.out.println("Ordem de entrega: " + no.getOrdemEntrega());
+        if (no.getOrdemEntrega() == OrdemEntrega.TOTAL) {
+            System.out.println("Sequenciador: " + no.getSequenciadorAtual());
+        }
+        if (no.getLogEnvio() != null) {
+            System.out.println("Log de envio: " + no.getLogEnvio().resumo());
+        }
         resultado = "Métricas exibidas";
     }
     
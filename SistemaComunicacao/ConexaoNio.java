@@ -0,0 +1,358 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conexão NIO com um vizinho, vista pelo protocolo como um NoInterface
+ * Chamadas apenas enfileiram quadros; a escrita acontece na thread do Selector
+ * A fila de saída é limitada em bytes: com um vizinho que não lê, o envio falha e o canal recua
+ */
+public class ConexaoNio implements NoInterface {
+    private static final long LIMITE_SAIDA_BYTES = 4L * 1024 * 1024;
+
+    private final TransporteNio transporte;
+    private final SocketChannel canal;
+    private final Queue<ByteBuffer> saida;
+    private final AtomicLong bytesSaida = new AtomicLong();
+    private final CompletableFuture<String> identificacao;
+    private final CodecMensagem codec;
+    private final boolean aceita; // true se o vizinho abriu a conexão
+    private ByteBuffer entrada;
+    private volatile SelectionKey chave;
+    private volatile String idRemoto;
+
+    public ConexaoNio(TransporteNio transporte, SocketChannel canal, boolean aceita) {
+        this.transporte = transporte;
+        this.canal = canal;
+        this.aceita = aceita;
+        this.saida = new ConcurrentLinkedQueue<>();
+        this.identificacao = new CompletableFuture<>();
+        this.codec = new CodecMensagem();
+        this.entrada = ByteBuffer.allocate(64 * 1024);
+    }
+
+    // Chamado pela thread do Selector ao registrar o canal
+    void setChave(SelectionKey chave) {
+        this.chave = chave;
+    }
+
+    SocketChannel getCanal() {
+        return canal;
+    }
+
+    CodecMensagem getCodec() {
+        return codec;
+    }
+
+    // Lê o que estiver disponível e repassa cada quadro completo ao transporte
+    void ler() throws IOException {
+        if (canal.read(entrada) < 0) {
+            throw new EOFException("Conexão encerrada pelo vizinho");
+        }
+        entrada.flip();
+        while (entrada.remaining() >= 4) {
+            int tamanho = entrada.getInt(entrada.position());
+            if (tamanho <= 0 || tamanho > QuadroNio.TAMANHO_MAX) {
+                throw new IOException("Quadro inválido: " + tamanho + " bytes");
+            }
+            if (entrada.remaining() < 4 + tamanho) {
+                break;
+            }
+            entrada.getInt();
+            byte[] corpo = new byte[tamanho];
+            entrada.get(corpo);
+            try {
+                transporte.despachar(this, corpo);
+            } catch (RuntimeException e) {
+                // Quadro malformado que escapou das verificações: derruba só esta conexão
+                throw new IOException("Quadro malformado: " + e, e);
+            }
+        }
+        entrada.compact();
+
+        // Quadro maior que o buffer: dobra a capacidade
+        if (!entrada.hasRemaining()) {
+            ByteBuffer maior = ByteBuffer.allocate(entrada.capacity() * 2);
+            entrada.flip();
+            maior.put(entrada);
+            entrada = maior;
+        }
+    }
+
+    // Escreve os quadros pendentes até o socket parar de aceitar dados
+    void escrever() throws IOException {
+        ByteBuffer quadro;
+        while ((quadro = saida.peek()) != null) {
+            canal.write(quadro);
+            if (quadro.hasRemaining()) {
+                return;
+            }
+            saida.poll();
+            bytesSaida.addAndGet(-quadro.limit());
+        }
+        chave.interestOps(SelectionKey.OP_READ);
+        // Um quadro pode ter chegado entre o esvaziamento e a troca de interesse
+        if (!saida.isEmpty()) {
+            chave.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    // Codifica e enfileira atomicamente: o dicionário do codec depende da ordem dos quadros
+    // O espaço é verificado antes de codificar: o dicionário não pode avançar sem o quadro sair
+    private void enviarMensagens(List<Mensagem> msgs, byte tipo) throws IOException {
+        synchronized (codec) {
+            verificarSaida();
+            if (tipo == QuadroNio.LOTE) {
+                enfileirar(QuadroNio.lote(msgs, codec));
+            } else if (tipo == QuadroNio.ACK) {
+                enfileirar(QuadroNio.ack(msgs.get(0), codec));
+            } else {
+                enfileirar(QuadroNio.mensagem(msgs.get(0), codec));
+            }
+        }
+    }
+
+    void enviarQuadro(ByteBuffer quadro) throws RemoteException {
+        verificarSaida();
+        enfileirar(quadro);
+    }
+
+    private void verificarSaida() throws RemoteException {
+        if (!canal.isOpen()) {
+            throw new RemoteException("Conexão com " + idRemoto + " encerrada");
+        }
+        if (bytesSaida.get() >= LIMITE_SAIDA_BYTES) {
+            throw new RemoteException("Fila de saída para " + idRemoto + " cheia");
+        }
+    }
+
+    private void enfileirar(ByteBuffer quadro) {
+        bytesSaida.addAndGet(quadro.limit());
+        saida.offer(quadro);
+        transporte.solicitarEscrita(this);
+    }
+
+    boolean temEscritaPendente() {
+        return !saida.isEmpty();
+    }
+
+    SelectionKey getChave() {
+        return chave;
+    }
+
+    // Handshake concluído: o vizinho se identificou
+    void identificar(String idRemoto) {
+        this.idRemoto = idRemoto;
+        identificacao.complete(idRemoto);
+    }
+
+    boolean isAceita() {
+        return aceita;
+    }
+
+    boolean isIdentificada() {
+        return idRemoto != null;
+    }
+
+    void aguardarIdentificacao(long timeoutMs) throws RemoteException {
+        try {
+            identificacao.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new RemoteException("Vizinho não respondeu ao handshake", e);
+        }
+    }
+
+    @Override
+    public void receive(Mensagem msg) throws RemoteException {
+        try {
+            enviarMensagens(List.of(msg), QuadroNio.MENSAGEM);
+        } catch (IOException e) {
+            throw new RemoteException("Falha ao codificar mensagem", e);
+        }
+    }
+
+    @Override
+    public void receiveBatch(List<Mensagem> msgs) throws RemoteException {
+        try {
+            enviarMensagens(msgs, QuadroNio.LOTE);
+        } catch (IOException e) {
+            throw new RemoteException("Falha ao codificar lote", e);
+        }
+    }
+
+    @Override
+    public void receiveBatch(List<Mensagem> msgs, String remetenteId, int ackAte, int credito) throws RemoteException {
+        try {
+            synchronized (codec) {
+                verificarSaida();
+                enfileirar(QuadroNio.loteComAck(msgs, remetenteId, ackAte, credito, codec));
+            }
+        } catch (IOException e) {
+            throw new RemoteException("Falha ao codificar lote", e);
+        }
+    }
+
+    @Override
+    public void ackCumulativo(String receptorId, int ateSeq, int credito) throws RemoteException {
+        try {
+            enviarQuadro(QuadroNio.ackCumulativo(receptorId, ateSeq, credito));
+        } catch (IOException e) {
+            throw new RemoteException("Falha ao codificar ACK", e);
+        }
+    }
+
+    @Override
+    public void ack(Mensagem msg) throws RemoteException {
+        try {
+            enviarMensagens(List.of(msg), QuadroNio.ACK);
+        } catch (IOException e) {
+            throw new RemoteException("Falha ao codificar ACK", e);
+        }
+    }
+
+    // O receptor já sabe quem está do outro lado da conexão: o quadro não leva o id
+    @Override
+    public void heartbeat(String remetenteId) throws RemoteException {
+        heartbeat();
+    }
+
+    @Override
+    public void heartbeat() throws RemoteException {
+        try {
+            enviarQuadro(QuadroNio.heartbeat());
+        } catch (IOException e) {
+            throw new RemoteException("Falha ao codificar heartbeat", e);
+        }
+    }
+
+    @Override
+    public void handleNACK(String senderId, int lastReceivedSeq) throws RemoteException {
+        try {
+            enviarQuadro(QuadroNio.nack(senderId, lastReceivedSeq));
+        } catch (IOException e) {
+            throw new RemoteException("Falha ao codificar NACK", e);
+        }
+    }
+
+    @Override
+    public void handleNACK(String senderId, int lastReceivedSeq, int[] lacunas, int credito) throws RemoteException {
+        try {
+            enviarQuadro(QuadroNio.nackSeletivo(senderId, lastReceivedSeq, lacunas, credito));
+        } catch (IOException e) {
+            throw new RemoteException("Falha ao codificar NACK", e);
+        }
+    }
+
+    @Override
+    public void nackRepasse(String solicitanteId, String origemId, int[] lacunas) throws RemoteException {
+        try {
+            enviarQuadro(QuadroNio.nackRepasse(solicitanteId, origemId, lacunas));
+        } catch (IOException e) {
+            throw new RemoteException("Falha ao codificar NACK de repasse", e);
+        }
+    }
+
+    @Override
+    public void resumoFofoca(String idNo, String[] remetentes, int[] ateSeq, boolean responder) 
+            throws RemoteException {
+        try {
+            enviarQuadro(QuadroNio.resumoFofoca(idNo, remetentes, ateSeq, responder));
+        } catch (IOException e) {
+            throw new RemoteException("Falha ao codificar resumo", e);
+        }
+    }
+
+    @Override
+    public void pedirAtualizacao(String idSolicitante, String[] remetentes, int[] ateSeq) 
+            throws RemoteException {
+        try {
+            enviarQuadro(QuadroNio.atualizacao(idSolicitante, remetentes, ateSeq, true));
+        } catch (IOException e) {
+            throw new RemoteException("Falha ao codificar pedido de atualização", e);
+        }
+    }
+
+    @Override
+    public void ofertaAtualizacao(String idVizinho, String[] remetentes, int[] ateSeq) 
+            throws RemoteException {
+        try {
+            enviarQuadro(QuadroNio.atualizacao(idVizinho, remetentes, ateSeq, false));
+        } catch (IOException e) {
+            throw new RemoteException("Falha ao codificar oferta de atualização", e);
+        }
+    }
+
+    @Override
+    public void anunciarArvore(String idNo, String raiz, int distancia, String pai, long versao) 
+            throws RemoteException {
+        try {
+            enviarQuadro(QuadroNio.arvore(idNo, raiz, distancia, pai, versao));
+        } catch (IOException e) {
+            throw new RemoteException("Falha ao codificar anúncio da árvore", e);
+        }
+    }
+
+    @Override
+    public void adicionarVizinho(NoInterface vizinho) throws RemoteException {
+        // A conexão recíproca já foi estabelecida pelo handshake
+    }
+
+    @Override
+    public String getIdNo() {
+        return idRemoto;
+    }
+
+    // Operações administrativas não trafegam pelo transporte NIO
+    @Override
+    public void broadcast(String conteudo) throws RemoteException {
+        throw naoSuportada();
+    }
+
+    @Override
+    public void broadcast(List<String> conteudos) throws RemoteException {
+        throw naoSuportada();
+    }
+
+    @Override
+    public void setSimularFalhaOmissao(boolean ativar) throws RemoteException {
+        throw naoSuportada();
+    }
+
+    @Override
+    public void setSimularFalhaTemporizacao(boolean ativar) throws RemoteException {
+        throw naoSuportada();
+    }
+
+    @Override
+    public void ativar() throws RemoteException {
+        throw naoSuportada();
+    }
+
+    @Override
+    public void recuperar() throws RemoteException {
+        throw naoSuportada();
+    }
+
+    @Override
+    public void entrarEmFalha(String motivo) throws RemoteException {
+        throw naoSuportada();
+    }
+
+    private RemoteException naoSuportada() {
+        return new RemoteException("Operação não suportada pelo transporte NIO");
+    }
+
+    @Override
+    public String toString() {
+        return "ConexaoNio[" + idRemoto + "]";
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Detector de falhas phi-accrual (Hayashibara et al.)
+ * Em vez de um veredito binário, calcula o nível de suspeita phi a partir da distribuição
+ * observada dos intervalos entre chegadas: phi = -log10(P(intervalo >= tempo desde o último contato))
+ * Qualquer tráfego do vizinho conta como chegada; a suspeita se adapta ao jitter do enlace
+ */
+public class DetectorPhiAccrual {
+    private static final int TAMANHO_JANELA = 200;
+
+    private final double[] intervalos = new double[TAMANHO_JANELA]; // ms
+    private int proximo;
+    private int quantidade;
+    private double soma;
+    private double somaQuadrados;
+
+    private final long amostraMinimaNanos;  // Chegadas mais próximas que isso só renovam o contato
+    private final double pausaAceitavelMs;  // Folga somada à média (GC, rajadas, ping atrasado)
+    private final double desvioMinimoMs;
+    private final double intervaloEsperadoMs;
+
+    private volatile long ultimaAmostraNanos = -1;
+    private volatile long ultimoContatoNanos = -1;
+
+    public DetectorPhiAccrual(long intervaloEsperadoMs) {
+        this.intervaloEsperadoMs = intervaloEsperadoMs;
+        this.amostraMinimaNanos = intervaloEsperadoMs * 1_000_000L / 2;
+        this.pausaAceitavelMs = 2.0 * intervaloEsperadoMs;
+        this.desvioMinimoMs = intervaloEsperadoMs / 4.0;
+    }
+
+    // Registra tráfego do vizinho; o caminho comum (chegadas próximas) não toma lock
+    public void registrarChegada(long agoraNanos) {
+        ultimoContatoNanos = agoraNanos;
+        long ultimaAmostra = ultimaAmostraNanos;
+        if (ultimaAmostra >= 0 && agoraNanos - ultimaAmostra < amostraMinimaNanos) {
+            return;
+        }
+        registrarAmostra(agoraNanos);
+    }
+
+    private synchronized void registrarAmostra(long agoraNanos) {
+        if (ultimaAmostraNanos < 0) {
+            // Primeira chegada: semeia a janela com o intervalo esperado (± 1/4)
+            adicionarIntervalo(intervaloEsperadoMs * 0.75);
+            adicionarIntervalo(intervaloEsperadoMs * 1.25);
+        } else if (agoraNanos > ultimaAmostraNanos) {
+            adicionarIntervalo((agoraNanos - ultimaAmostraNanos) / 1_000_000.0);
+        }
+        ultimaAmostraNanos = agoraNanos;
+    }
+
+    private void adicionarIntervalo(double intervaloMs) {
+        if (quantidade == TAMANHO_JANELA) {
+            double antigo = intervalos[proximo];
+            soma -= antigo;
+            somaQuadrados -= antigo * antigo;
+        } else {
+            quantidade++;
+        }
+        intervalos[proximo] = intervaloMs;
+        soma += intervaloMs;
+        somaQuadrados += intervaloMs * intervaloMs;
+        proximo = (proximo + 1) % TAMANHO_JANELA;
+    }
+
+    /**
+     * Nível de suspeita no instante dado: 1 ~ 10% de chance de erro ao suspeitar, 2 ~ 1%, 3 ~ 0,1%...
+     * Zero enquanto não houve nenhum contato
+     */
+    public synchronized double phi(long agoraNanos) {
+        if (ultimoContatoNanos < 0 || quantidade == 0) {
+            return 0;
+        }
+        double decorridoMs = Math.max(0, agoraNanos - ultimoContatoNanos) / 1_000_000.0;
+        double media = soma / quantidade;
+        double variancia = Math.max(0, somaQuadrados / quantidade - media * media);
+        double desvio = Math.max(Math.sqrt(variancia), desvioMinimoMs);
+        media += pausaAceitavelMs;
+
+        // Aproximação logística da CDF normal
+        double y = (decorridoMs - media) / desvio;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (decorridoMs > media) {
+            return -Math.log10(e / (1.0 + e));
+        }
+        return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+
+    public long getUltimoContatoNanos() {
+        return ultimoContatoNanos;
+    }
+}
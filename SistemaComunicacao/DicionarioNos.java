@@ -0,0 +1,64 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Padrão Singleton: Dicionário de identidades numéricas dos nós
+ ** Cada id de nó recebe um índice int compacto na primeira vez que é visto nesta JVM;
+ ** o caminho quente usa o índice no lugar da String **/
+public class DicionarioNos {
+    private static volatile DicionarioNos instancia;
+    private final Map<String, Integer> indices;
+    private volatile String[] nomes;
+    private int proximoIndice = 1; // 0 fica reservado para "ainda não resolvido"
+
+    private DicionarioNos() {
+        this.indices = new ConcurrentHashMap<>();
+        this.nomes = new String[16];
+    }
+
+    public static DicionarioNos getInstancia() {
+        if (instancia == null) {
+            synchronized (DicionarioNos.class) {
+                if (instancia == null) {
+                    instancia = new DicionarioNos();
+                }
+            }
+        }
+        return instancia;
+    }
+
+    // Índice do nó, atribuído na primeira consulta
+    public int indice(String idNo) {
+        Integer indice = indices.get(idNo);
+        if (indice != null) {
+            return indice;
+        }
+        return registrar(idNo);
+    }
+
+    // Id do nó a partir do índice, ou null se o índice não foi atribuído
+    public String nome(int indice) {
+        String[] atuais = nomes;
+        return indice > 0 && indice < atuais.length ? atuais[indice] : null;
+    }
+
+    private synchronized int registrar(String idNo) {
+        Integer existente = indices.get(idNo);
+        if (existente != null) {
+            return existente;
+        }
+        int indice = proximoIndice++;
+        if (indice >= nomes.length) {
+            nomes = Arrays.copyOf(nomes, nomes.length * 2);
+        }
+        nomes[indice] = idNo;
+        indices.put(idNo, indice);
+        return indice;
+    }
+
+    //Previne clonagem
+    @Override
+    protected Object clone() throws CloneNotSupportedException {
+        throw new CloneNotSupportedException("Singleton não pode ser clonado");
+    }
+}
@@ -0,0 +1,74 @@
+import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Padrão Singleton: Diretório dos nós que vivem nesta JVM
+ ** Permite que vizinhos co-localizados conversem sem serialização **/
+public class DiretorioLocal {
+    private static volatile DiretorioLocal instancia;
+    private final Map<String, NoLocal> nosLocais;
+
+    private DiretorioLocal() {
+        this.nosLocais = new ConcurrentHashMap<>();
+    }
+
+    public static DiretorioLocal getInstancia() {
+        if (instancia == null) {
+            synchronized (DiretorioLocal.class) {
+                if (instancia == null) {
+                    instancia = new DiretorioLocal();
+                }
+            }
+        }
+        return instancia;
+    }
+
+    // Registra um nó desta JVM (chamado ao publicar o nó); reativar reaproveita o mesmo NoLocal,
+    // outra instância com o mesmo id substitui a anterior
+    public void registrar(No no) {
+        nosLocais.compute(no.getIdNo(), (id, atual) -> {
+            if (atual != null && atual.getDestino() == no) {
+                return atual;
+            }
+            if (atual != null) {
+                atual.encerrar();
+            }
+            return new NoLocal(no);
+        });
+    }
+
+    // Remove de vez um nó desta JVM; desligar não remove, pois os vizinhos guardam o NoLocal
+    public void remover(String idNo) {
+        NoLocal local = nosLocais.remove(idNo);
+        if (local != null) {
+            local.encerrar();
+        }
+    }
+
+    // Retorna o acesso local ao nó, ou null se ele não vive nesta JVM
+    public NoLocal buscar(String idNo) {
+        return nosLocais.get(idNo);
+    }
+
+    /**
+     * Troca a referência de um vizinho pelo acesso local quando ele vive nesta JVM
+     * Vizinhos remotos são devolvidos sem alteração
+     */
+    public NoInterface resolver(NoInterface vizinho) {
+        if (vizinho instanceof NoLocal) {
+            return vizinho;
+        }
+        try {
+            NoLocal local = nosLocais.get(vizinho.getIdNo());
+            return local != null ? local : vizinho;
+        } catch (RemoteException e) {
+            return vizinho;
+        }
+    }
+
+    //Previne clonagem
+    @Override
+    protected Object clone() throws CloneNotSupportedException {
+        throw new CloneNotSupportedException("Singleton não pode ser clonado");
+    }
+}
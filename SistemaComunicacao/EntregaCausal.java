@@ -0,0 +1,140 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entrega em ordem causal: uma mensagem só sai depois de tudo o que o remetente já tinha
+ * entregue quando a enviou
+ * Cada mensagem traz só o delta do vetor do remetente; como as mensagens de um remetente chegam
+ * em FIFO, o vetor completo é reconstruído aqui somando os deltas. As entradas que não mudaram já
+ * foram satisfeitas pela mensagem anterior do mesmo remetente, então só o delta é verificado
+ * Usada apenas pela thread de entrega, sem sincronização
+ */
+public class EntregaCausal {
+    private final int indiceProprio; // Dependências das próprias mensagens estão sempre satisfeitas
+    private ArrayDeque<Pendente>[] aguardando = novasFilas(16);
+    private int[][] vetores = new int[16][];  // Último vetor reconstruído de cada remetente
+    private int[] entregueAte = new int[16];
+    private int quantidadeAguardando;
+
+    public EntregaCausal(int indiceProprio) {
+        this.indiceProprio = indiceProprio;
+    }
+
+    // Mensagem recebida em FIFO: aplica o delta ao vetor do remetente e a retém até as dependências saírem
+    public void receber(Mensagem msg) {
+        int remetente = msg.getIndiceRemetente();
+        garantirCapacidade(remetente);
+        String[] dependencias = msg.getDependencias();
+        int[] incrementos = msg.getIncrementos();
+        int[] indices = new int[dependencias.length];
+        int[] alvos = new int[dependencias.length];
+        DicionarioNos dicionario = DicionarioNos.getInstancia();
+        for (int i = 0; i < dependencias.length; i++) {
+            int indice = dicionario.indice(dependencias[i]);
+            int[] vetor = vetorDe(remetente, indice);
+            vetor[indice] += incrementos[i];
+            indices[i] = indice;
+            alvos[i] = vetor[indice];
+        }
+        aguardando[remetente].add(new Pendente(msg, indices, alvos));
+        quantidadeAguardando++;
+    }
+
+    // Entregue por qualquer caminho (inclusive antes do modo causal): conta para as dependências
+    public void registrarEntregue(int indiceRemetente, int seq) {
+        garantirCapacidade(indiceRemetente);
+        if (seq > entregueAte[indiceRemetente]) {
+            entregueAte[indiceRemetente] = seq;
+        }
+    }
+
+    // Libera tudo o que já tem as dependências satisfeitas; uma entrega pode destravar outros remetentes
+    public void liberar(List<Mensagem> prontas) {
+        boolean progresso = quantidadeAguardando > 0;
+        while (progresso) {
+            progresso = false;
+            for (int remetente = 0; remetente < aguardando.length; remetente++) {
+                ArrayDeque<Pendente> fila = aguardando[remetente];
+                Pendente pendente;
+                while ((pendente = fila.peek()) != null && satisfeita(pendente)) {
+                    fila.poll();
+                    quantidadeAguardando--;
+                    registrarEntregue(remetente, pendente.msg.getSequenceNumber());
+                    prontas.add(pendente.msg);
+                    progresso = true;
+                }
+            }
+        }
+    }
+
+    // Ordem causal desligada: o que estava retido sai em FIFO por remetente
+    public void liberarTudo(List<Mensagem> prontas) {
+        for (int remetente = 0; remetente < aguardando.length; remetente++) {
+            for (Pendente pendente : aguardando[remetente]) {
+                registrarEntregue(remetente, pendente.msg.getSequenceNumber());
+                prontas.add(pendente.msg);
+            }
+            aguardando[remetente].clear();
+        }
+        quantidadeAguardando = 0;
+    }
+
+    public int getQuantidadeAguardando() {
+        return quantidadeAguardando;
+    }
+
+    private boolean satisfeita(Pendente pendente) {
+        for (int i = 0; i < pendente.indices.length; i++) {
+            int indice = pendente.indices[i];
+            if (indice != indiceProprio && (indice >= entregueAte.length || entregueAte[indice] < pendente.alvos[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] vetorDe(int remetente, int indice) {
+        int[] vetor = vetores[remetente];
+        if (vetor == null || indice >= vetor.length) {
+            vetor = vetor == null ? new int[Math.max(16, indice + 1)]
+                : Arrays.copyOf(vetor, Math.max(vetor.length * 2, indice + 1));
+            vetores[remetente] = vetor;
+        }
+        return vetor;
+    }
+
+    private void garantirCapacidade(int indice) {
+        if (indice >= aguardando.length) {
+            int tamanho = Math.max(aguardando.length * 2, indice + 1);
+            ArrayDeque<Pendente>[] novas = novasFilas(tamanho);
+            System.arraycopy(aguardando, 0, novas, 0, aguardando.length);
+            aguardando = novas;
+            vetores = Arrays.copyOf(vetores, tamanho);
+            entregueAte = Arrays.copyOf(entregueAte, tamanho);
+        }
+    }
+
+    // Java não cria vetores de tipo genérico: o vetor cru só recebe filas deste tipo, criadas aqui
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayDeque<Pendente>[] novasFilas(int tamanho) {
+        ArrayDeque<Pendente>[] filas = new ArrayDeque[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            filas[i] = new ArrayDeque<>();
+        }
+        return filas;
+    }
+
+    // Mensagem retida com as entradas do vetor que ela precisa ver entregues
+    private static class Pendente {
+        final Mensagem msg;
+        final int[] indices;
+        final int[] alvos;
+
+        Pendente(Mensagem msg, int[] indices, int[] alvos) {
+            this.msg = msg;
+            this.indices = indices;
+            this.alvos = alvos;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entrega em ordem total: segura as mensagens, que já chegam em FIFO por remetente,
+ * até que um lote do sequenciador diga onde elas entram, e então as libera na ordem do lote
+ * Um trecho só avança quando o remetente foi recebido até o fim dele; os seguintes esperam
+ * Usada apenas pela thread de entrega, sem sincronização
+ */
+public class EntregaTotal {
+    private final int indiceProprio; // As próprias mensagens não são entregues a este nó
+    private ArrayDeque<Mensagem>[] aguardando = novasFilas(16);
+    private int[] recebidoAte = new int[16];
+    private final ArrayDeque<Sequenciador.Trecho> trechos = new ArrayDeque<>();
+    private int quantidadeAguardando;
+    private long termoAtual; // Mandato do último lote aplicado
+
+    public EntregaTotal(int indiceProprio) {
+        this.indiceProprio = indiceProprio;
+    }
+
+    // Mensagem recebida em FIFO; lotes de ordem contam para a sequência do sequenciador mas não são guardados
+    public void receber(Mensagem msg, boolean guardar) {
+        int indice = msg.getIndiceRemetente();
+        garantirCapacidade(indice);
+        if (msg.getSequenceNumber() > recebidoAte[indice]) {
+            recebidoAte[indice] = msg.getSequenceNumber();
+        }
+        if (guardar && indice != indiceProprio) {
+            aguardando[indice].add(msg);
+            quantidadeAguardando++;
+        }
+    }
+
+    /**
+     * Lote de ordem do mandato 'termo'; um mandato anterior ao do último lote aplicado é de um
+     * sequenciador já substituído, e aplicar os dois intercalaria duas ordens diferentes
+     * @return false se o lote foi recusado
+     */
+    public boolean receberOrdem(long termo, List<Sequenciador.Trecho> lote) {
+        if (termo < termoAtual) {
+            return false;
+        }
+        termoAtual = termo;
+        trechos.addAll(lote);
+        return true;
+    }
+
+    // Libera, na ordem dos lotes, tudo o que já pode ser entregue
+    public void liberar(List<Mensagem> prontas) {
+        Sequenciador.Trecho trecho;
+        while ((trecho = trechos.peek()) != null) {
+            if (trecho.indice == indiceProprio) {
+                trechos.poll();
+                continue;
+            }
+            garantirCapacidade(trecho.indice);
+            ArrayDeque<Mensagem> fila = aguardando[trecho.indice];
+            Mensagem msg;
+            while ((msg = fila.peek()) != null && msg.getSequenceNumber() <= trecho.ateSeq) {
+                prontas.add(fila.poll());
+                quantidadeAguardando--;
+            }
+            if (recebidoAte[trecho.indice] < trecho.ateSeq) {
+                return; // O remetente ainda não chegou até o fim do trecho
+            }
+            trechos.poll();
+        }
+    }
+
+    // Ordem total desligada: o que estava retido sai em FIFO por remetente
+    public void liberarTudo(List<Mensagem> prontas) {
+        for (ArrayDeque<Mensagem> fila : aguardando) {
+            prontas.addAll(fila);
+            fila.clear();
+        }
+        trechos.clear();
+        quantidadeAguardando = 0;
+    }
+
+    public int getQuantidadeAguardando() {
+        return quantidadeAguardando;
+    }
+
+    private void garantirCapacidade(int indice) {
+        if (indice >= aguardando.length) {
+            int tamanho = Math.max(aguardando.length * 2, indice + 1);
+            ArrayDeque<Mensagem>[] novas = novasFilas(tamanho);
+            System.arraycopy(aguardando, 0, novas, 0, aguardando.length);
+            aguardando = novas;
+            recebidoAte = Arrays.copyOf(recebidoAte, tamanho);
+        }
+    }
+
+    // Java não cria vetores de tipo genérico: o vetor cru só recebe filas deste tipo, criadas aqui
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayDeque<Mensagem>[] novasFilas(int tamanho) {
+        ArrayDeque<Mensagem>[] filas = new ArrayDeque[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            filas[i] = new ArrayDeque<>();
+        }
+        return filas;
+    }
+}
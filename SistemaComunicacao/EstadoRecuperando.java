@@ -2,16 +2,16 @@ import java.rmi.RemoteException;
 
 /**
  * Estado Concreto: Nó está se recuperando de uma falha
+ * Os vizinhos transmitem o que ele perdeu; o nó volta a ATIVO quando alcança o que eles
+ * ofereceram (No.verificarAtualizacao), não depois de um número fixo de envios
  */
 public class EstadoRecuperando implements EstadoNo {
     private final String motivoFalhaAnterior;
     private final long timestampInicioRecuperacao;
-    private int tentativasRecuperacao;
     
     public EstadoRecuperando(String motivoFalhaAnterior) {
         this.motivoFalhaAnterior = motivoFalhaAnterior;
         this.timestampInicioRecuperacao = System.currentTimeMillis();
-        this.tentativasRecuperacao = 0;
     }
     
     @Override
@@ -24,26 +24,17 @@ public class EstadoRecuperando implements EstadoNo {
     
     @Override
     public void enviarMensagem(Mensagem msg, No contexto) throws RemoteException {
-        // Durante recuperação, permite envios limitados
-        tentativasRecuperacao++;
+        // Durante recuperação, envia normalmente; a volta a ATIVO depende da atualização
         GerenciadorLog.getInstancia().registrar(contexto.getIdNo(), 
-            "Enviando mensagem durante recuperação (tentativa " + tentativasRecuperacao + ")");
+            "Enviando mensagem durante recuperação");
         contexto.processarEnvioMensagem(msg);
-        
-        // Se conseguiu enviar, considera recuperado
-        if (tentativasRecuperacao >= 3) {
-            GerenciadorLog.getInstancia().registrar(contexto.getIdNo(), 
-                "Recuperação bem-sucedida após " + tentativasRecuperacao + " tentativas");
-            contexto.setEstado(new EstadoAtivo());
-        }
     }
     
     @Override
     public void processarHeartbeat(No contexto) throws RemoteException {
         // Responde heartbeat durante recuperação
-        tentativasRecuperacao++;
         GerenciadorLog.getInstancia().registrar(contexto.getIdNo(), 
-            "Heartbeat durante recuperação (tentativa " + tentativasRecuperacao + ")");
+            "Heartbeat durante recuperação");
     }
     
     @Override
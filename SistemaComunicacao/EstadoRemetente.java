@@ -0,0 +1,93 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Estado de recebimento mantido por um nó para cada remetente
+ * Indexado pelo índice numérico do remetente (DicionarioNos), sem mapas com chave String
+ * Só a faixa de recebimento do remetente altera a sequência e o buffer fora de ordem
+ */
+public class EstadoRemetente {
+    private final int indice;
+    private final String idNo;
+
+    private volatile int ultimaSequencia;          // Maior sequência aceita em ordem
+    private final BufferSequencial foraDeOrdem;    // Chegaram antes das anteriores
+    private final JanelaEntrega entregues;         // Já entregues à aplicação
+    private final AtomicInteger ackPendente;       // ACK cumulativo ainda não enviado (0 = nenhum)
+    private volatile long ultimoNack;              // Instante do último NACK enviado
+    private final DetectorPhiAccrual detector;     // Suspeita de falha, alimentada por todo tráfego recebido
+
+    // Ordem causal: maior sequência entregue (pela thread de entrega) e o quanto disso já
+    // foi anunciado como dependência nas mensagens enviadas (guardado pela trava de créditos do nó)
+    private volatile int entregueAte;
+    private int dependenciaEnviada;
+
+    // Repasse pela árvore: o que já foi repassado, as últimas repassadas (para reparos) e por onde chegam
+    private static final int REPASSADAS_GUARDADAS = 256;
+    private final JanelaEntrega repassadas;
+    private final BufferSequencial recentes;
+    private volatile String enlaceRepasse;
+    private volatile long ultimoRepasseNanos;
+
+    public EstadoRemetente(int indice, String idNo, long intervaloHeartbeatMs) {
+        this.indice = indice;
+        this.idNo = idNo;
+        this.detector = new DetectorPhiAccrual(intervaloHeartbeatMs);
+        this.foraDeOrdem = new BufferSequencial(64);
+        this.entregues = new JanelaEntrega();
+        this.ackPendente = new AtomicInteger();
+        this.repassadas = new JanelaEntrega();
+        this.recentes = new BufferSequencial(64);
+    }
+
+    public int getIndice() { return indice; }
+    public String getIdNo() { return idNo; }
+
+    public int getUltimaSequencia() { return ultimaSequencia; }
+    public void setUltimaSequencia(int seq) { this.ultimaSequencia = seq; }
+
+    public BufferSequencial getForaDeOrdem() { return foraDeOrdem; }
+    public JanelaEntrega getEntregues() { return entregues; }
+
+    // Acumula o ACK pendente pelo máximo
+    public void registrarAck(int ateSeq) {
+        ackPendente.accumulateAndGet(ateSeq, Math::max);
+    }
+
+    // Retira o ACK pendente; 0 se ele já foi enviado
+    public int retirarAck() {
+        return ackPendente.getAndSet(0);
+    }
+
+    public DetectorPhiAccrual getDetector() { return detector; }
+
+    public int getEntregueAte() { return entregueAte; }
+    public void setEntregueAte(int seq) { this.entregueAte = seq; }
+
+    public int getDependenciaEnviada() { return dependenciaEnviada; }
+    public void setDependenciaEnviada(int seq) { this.dependenciaEnviada = seq; }
+
+    /**
+     * Marca a mensagem como repassada e a guarda para reparos dos vizinhos de baixo
+     * @return false se ela já tinha sido repassada (cópia duplicada)
+     */
+    public boolean registrarRepasse(Mensagem msg, String idEnlace) {
+        if (!repassadas.marcarSeNova(msg.getSequenceNumber())) {
+            return false;
+        }
+        enlaceRepasse = idEnlace;
+        ultimoRepasseNanos = System.nanoTime();
+        // Descarta antes de inserir: um salto grande de sequência não faz o buffer crescer
+        recentes.liberarAte(Math.max(recentes.getFim(), msg.getSequenceNumber()) - REPASSADAS_GUARDADAS);
+        recentes.adicionar(msg);
+        return true;
+    }
+
+    public BufferSequencial getRecentes() { return recentes; }
+
+    // Vizinho pelo qual as mensagens deste remetente chegam (null se nenhuma chegou por repasse)
+    public String getEnlaceRepasse() { return enlaceRepasse; }
+    public long getUltimoRepasseNanos() { return ultimoRepasseNanos; }
+
+    public long getUltimoNack() { return ultimoNack; }
+    public void setUltimoNack(long instante) { this.ultimoNack = instante; }
+}
@@ -0,0 +1,58 @@
+/**
+ * Estimativa de RTT e do timeout de retransmissão (RTO) de um enlace
+ * Jacobson: SRTT e RTTVAR suavizados, RTO = SRTT + 4 * RTTVAR
+ * Karn: amostras de mensagens retransmitidas são descartadas por quem mede,
+ * e cada timeout dobra o RTO até chegar uma amostra válida
+ */
+public class EstimadorRtt {
+    private static final long RTO_INICIAL_MS = 250;     // Antes da primeira amostra válida
+    private static final long RTO_MIN_MS = 30;      // Acima do atraso de ACK + janela de coalescência
+    private static final long RTO_MAX_MS = 60000;
+    private static final double ALFA = 1.0 / 8;
+    private static final double BETA = 1.0 / 4;
+
+    private double srtt = -1;   // -1 = nenhuma amostra ainda
+    private double rttvar;
+    private long rto = RTO_INICIAL_MS;
+
+    public synchronized void registrarAmostra(double rttMs) {
+        if (srtt < 0) {
+            srtt = rttMs;
+            rttvar = rttMs / 2;
+        } else {
+            rttvar = (1 - BETA) * rttvar + BETA * Math.abs(srtt - rttMs);
+            srtt = (1 - ALFA) * srtt + ALFA * rttMs;
+        }
+        rto = calcularRto();
+    }
+
+    // Backoff exponencial após um timeout
+    public synchronized void registrarTimeout() {
+        rto = limitar(rto * 2);
+    }
+
+    // O enlace voltou a confirmar dados novos: desfaz o backoff mesmo sem amostra válida
+    public synchronized void cancelarBackoff() {
+        rto = srtt < 0 ? RTO_INICIAL_MS : calcularRto();
+    }
+
+    private long calcularRto() {
+        return limitar((long) Math.ceil(srtt + Math.max(1, 4 * rttvar)));
+    }
+
+    public synchronized long getRto() {
+        return rto;
+    }
+
+    public synchronized double getSrtt() {
+        return Math.max(0, srtt);
+    }
+
+    public synchronized double getRttvar() {
+        return rttvar;
+    }
+
+    private static long limitar(long valor) {
+        return Math.max(RTO_MIN_MS, Math.min(RTO_MAX_MS, valor));
+    }
+}
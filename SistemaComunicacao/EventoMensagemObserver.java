@@ -11,12 +11,18 @@ public interface EventoMensagemObserver {
     // Notificado quando um ACK é enviado
     void onAckEnviado(String idNo, Mensagem msg);
     
+    // Notificado quando um ACK cumulativo (tudo até ateSeq) é enviado
+    void onAckCumulativoEnviado(String idNo, String destinatario, int ateSeq);
+    
     // Notificado quando um NACK é enviado
     void onNackEnviado(String idNo, String destinatario, int ultimaSeqRecebida);
     
     // Notificado quando uma falha de vizinho é detectada
     void onFalhaVizinho(String idNo, String motivoFalha);
     
+    // Notificado quando o nível de suspeita (phi) de um vizinho passa do limiar
+    void onVizinhoSuspeito(String idNo, String idVizinho, double phi);
+    
     // Notificado quando uma mensagem é reenviada
     void onMensagemReeviada(String idNo, Mensagem msg, int tentativa);
 }
\ No newline at end of file
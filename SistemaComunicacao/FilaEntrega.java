@@ -0,0 +1,118 @@
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fila de entrega em anel pré-alocado, no estilo Disruptor
+ * Vários produtores (as faixas de recebimento) reservam posições com um contador atômico;
+ * um único consumidor (a thread de entrega) drena em lote, sem locks
+ * Quando o anel enche, os produtores esperam: a memória da fila é limitada
+ */
+public class FilaEntrega {
+    private static final long ESPERA_CONSUMIDOR_NS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long ESPERA_PRODUTOR_NS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final Mensagem[] slots;
+    private final AtomicLongArray publicados; // posição publicada em cada slot
+    private final int mascara;
+    private final AtomicLong proximaReserva;  // próxima posição a ser reservada por um produtor
+    private volatile long proximaLeitura;     // próxima posição a ser lida pelo consumidor
+    private volatile Thread consumidor;
+    private volatile boolean consumidorAguardando;
+
+    public FilaEntrega(int capacidade) {
+        int tamanho = Integer.highestOneBit(Math.max(2, capacidade - 1)) << 1;
+        this.slots = new Mensagem[tamanho];
+        this.publicados = new AtomicLongArray(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            publicados.set(i, -1);
+        }
+        this.mascara = tamanho - 1;
+        this.proximaReserva = new AtomicLong(0);
+    }
+
+    /**
+     * Publica uma mensagem (chamado por qualquer produtor)
+     * A posição só é reservada quando já há espaço para ela: um produtor interrompido na espera
+     * não deixa para trás uma posição que nunca será publicada (e que travaria o consumidor)
+     * @throws InterruptedException se interrompido enquanto espera espaço no anel; nada foi publicado
+     */
+    public void publicar(Mensagem msg) throws InterruptedException {
+        long posicao;
+        while (true) {
+            posicao = proximaReserva.get();
+            if (posicao - proximaLeitura < slots.length) {
+                if (proximaReserva.compareAndSet(posicao, posicao + 1)) {
+                    break;
+                }
+                continue; // Outro produtor levou a posição
+            }
+            LockSupport.parkNanos(this, ESPERA_PRODUTOR_NS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+
+        int indice = (int) (posicao & mascara);
+        slots[indice] = msg;
+        publicados.set(indice, posicao); // escrita volátil publica o slot
+
+        if (consumidorAguardando) {
+            LockSupport.unpark(consumidor);
+        }
+    }
+
+    /**
+     * Drena até 'maximo' mensagens em ordem, esperando se a fila estiver vazia
+     * Só pode ser chamado pela thread consumidora
+     * @return quantidade de mensagens adicionadas ao destino
+     */
+    public int drenar(List<Mensagem> destino, int maximo) throws InterruptedException {
+        consumidor = Thread.currentThread();
+        long posicao = proximaLeitura;
+        int drenadas = 0;
+
+        while (drenadas == 0) {
+            while (drenadas < maximo) {
+                int indice = (int) (posicao & mascara);
+                if (publicados.get(indice) != posicao) {
+                    break; // Ainda não publicada
+                }
+                destino.add(slots[indice]);
+                slots[indice] = null;
+                posicao++;
+                drenadas++;
+            }
+
+            if (drenadas == 0) {
+                aguardarPublicacao(posicao);
+            }
+        }
+
+        proximaLeitura = posicao;
+        return drenadas;
+    }
+
+    private void aguardarPublicacao(long posicao) throws InterruptedException {
+        consumidorAguardando = true;
+        // Confere de novo depois do flag para não perder um unpark
+        if (publicados.get((int) (posicao & mascara)) != posicao) {
+            LockSupport.parkNanos(this, ESPERA_CONSUMIDOR_NS);
+        }
+        consumidorAguardando = false;
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    // Aproximado: reservas ainda não publicadas também contam
+    public int tamanho() {
+        return (int) Math.max(0, proximaReserva.get() - proximaLeitura);
+    }
+
+    public int capacidade() {
+        return slots.length;
+    }
+}
@@ -58,6 +58,17 @@ public class GerenciadorEventos {
         }
     }
     
+    // Notifica todos os observadores sobre ACK cumulativo enviado
+    public void notificarAckCumulativoEnviado(String idNo, String destinatario, int ateSeq) {
+        for (EventoMensagemObserver obs : observadores) {
+            try {
+                obs.onAckCumulativoEnviado(idNo, destinatario, ateSeq);
+            } catch (Exception e) {
+                System.err.println("Erro ao notificar observador: " + e.getMessage());
+            }
+        }
+    }
+    
     // Notifica todos os observadores sobre NACK enviado
     public void notificarNackEnviado(String idNo, String destinatario, int ultimaSeq) {
         for (EventoMensagemObserver obs : observadores) {
@@ -80,6 +91,17 @@ public class GerenciadorEventos {
         }
     }
     
+    // Notifica todos os observadores sobre vizinho suspeito
+    public void notificarVizinhoSuspeito(String idNo, String idVizinho, double phi) {
+        for (EventoMensagemObserver obs : observadores) {
+            try {
+                obs.onVizinhoSuspeito(idNo, idVizinho, phi);
+            } catch (Exception e) {
+                System.err.println("Erro ao notificar observador: " + e.getMessage());
+            }
+        }
+    }
+    
     // Notifica todos os observadores sobre reenvio de mensagem
     public void notificarMensagemReeviada(String idNo, Mensagem msg, int tentativa) {
         for (EventoMensagemObserver obs : observadores) {
@@ -0,0 +1,83 @@
+import java.util.Arrays;
+
+/**
+ * Registro compacto das mensagens já entregues de um remetente
+ * Tudo até 'entregueAte' foi entregue; acima dele, um bitmap deslizante marca as entregas avulsas
+ * Consultar e marcar custam O(1) sem alocação, e a memória não cresce com o tráfego
+ */
+public class JanelaEntrega {
+    private static final int PALAVRAS = 4; // 256 sequências acima da marca d'água
+
+    private final long[] bits = new long[PALAVRAS];
+    private final int capacidade = PALAVRAS * 64;
+    private int entregueAte; // maior sequência com todas as anteriores entregues
+
+    public synchronized boolean contem(int seq) {
+        if (seq <= entregueAte) {
+            return true;
+        }
+        if (seq - entregueAte > capacidade) {
+            return false;
+        }
+        return (bits[indicePalavra(seq)] & mascaraBit(seq)) != 0;
+    }
+
+    /**
+     * Marca a sequência como entregue, avançando a marca d'água se ela fechar a lacuna
+     * Uma sequência além da janela empurra a marca: as lacunas mais antigas são dadas como encerradas
+     */
+    public synchronized void marcar(int seq) {
+        if (seq <= entregueAte) {
+            return;
+        }
+        if (seq - entregueAte > capacidade) {
+            deslizarPara(seq - capacidade);
+        }
+        bits[indicePalavra(seq)] |= mascaraBit(seq);
+
+        while ((bits[indicePalavra(entregueAte + 1)] & mascaraBit(entregueAte + 1)) != 0) {
+            entregueAte++;
+            bits[indicePalavra(entregueAte)] &= ~mascaraBit(entregueAte);
+        }
+    }
+
+    // Consulta e marca em um só passo: só a primeira cópia de cada sequência devolve true
+    public synchronized boolean marcarSeNova(int seq) {
+        if (contem(seq)) {
+            return false;
+        }
+        marcar(seq);
+        return true;
+    }
+
+    // Checkpoint relido: tudo até a marca conta como entregue
+    public synchronized void restaurar(int marca) {
+        if (marca > entregueAte) {
+            deslizarPara(marca);
+        }
+    }
+
+    public synchronized int getEntregueAte() {
+        return entregueAte;
+    }
+
+    // Avança a marca d'água, limpando os bits das sequências que saem da janela
+    private void deslizarPara(int novaMarca) {
+        if (novaMarca - entregueAte >= capacidade) {
+            Arrays.fill(bits, 0L);
+        } else {
+            for (int seq = entregueAte + 1; seq <= novaMarca; seq++) {
+                bits[indicePalavra(seq)] &= ~mascaraBit(seq);
+            }
+        }
+        entregueAte = novaMarca;
+    }
+
+    private int indicePalavra(int seq) {
+        return (seq & (capacidade - 1)) >>> 6;
+    }
+
+    private static long mascaraBit(int seq) {
+        return 1L << (seq & 63);
+    }
+}
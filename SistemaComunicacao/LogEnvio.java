@@ -0,0 +1,423 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Log de envio (write-ahead) das mensagens próprias, em segmentos mapeados em memória
+ * O nó grava cada mensagem antes de distribuí-la aos canais; retransmissões e o reenvio depois
+ * de um reinício são lidos daqui, e o heap guarda só a posição de cada sequência no segmento
+ * Registro: [tamanho:int][crc32:int][seq:int][mensagem codificada pelo CodecMensagem]
+ * Os segmentos são pré-alocados com zeros: um tamanho zero marca o fim do que foi escrito,
+ * e um CRC inválido (escrita interrompida) também encerra a leitura na recuperação
+ * Um segmento inteiro é apagado quando todas as suas mensagens foram confirmadas
+ */
+public class LogEnvio implements Closeable {
+    public static final int TAMANHO_SEGMENTO_PADRAO = 4 * 1024 * 1024;
+    public static final long INTERVALO_SINCRONIZACAO_PADRAO_MS = 50;
+    private static final int CABECALHO_REGISTRO = 12;
+    private static final String PREFIXO_ARQUIVO = "segmento-";
+    private static final String SUFIXO_ARQUIVO = ".log";
+
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private final PoliticaSincronizacao politica;
+    private final long intervaloSincronizacaoMs;
+
+    // Guardados pelo monitor do log
+    private final ArrayDeque<Segmento> segmentos = new ArrayDeque<>();
+    private int ultimaSeq;
+    private long escritoAte; // Posição lógica (número do segmento * tamanho + deslocamento) do fim escrito
+
+    // Group commit: quem grava espera um único fsync que cobre tudo o que já foi escrito
+    private final Object travaSincronizacao = new Object();
+    private long solicitadoAte;
+    private long duravelAte;
+    private final Thread sincronizador;
+    private volatile boolean aberto = true;
+
+    public LogEnvio(Path diretorio, PoliticaSincronizacao politica) throws IOException {
+        this(diretorio, politica, TAMANHO_SEGMENTO_PADRAO, INTERVALO_SINCRONIZACAO_PADRAO_MS);
+    }
+
+    public LogEnvio(Path diretorio, PoliticaSincronizacao politica, int tamanhoSegmento,
+                    long intervaloSincronizacaoMs) throws IOException {
+        this.diretorio = diretorio;
+        this.politica = politica;
+        this.tamanhoSegmento = tamanhoSegmento;
+        this.intervaloSincronizacaoMs = intervaloSincronizacaoMs;
+        Files.createDirectories(diretorio);
+        recuperar();
+        if (politica != PoliticaSincronizacao.NUNCA) {
+            sincronizador = new Thread(this::sincronizar, "log-envio-" + diretorio.getFileName());
+            sincronizador.setDaemon(true);
+            sincronizador.start();
+        } else {
+            sincronizador = null;
+        }
+    }
+
+    /**
+     * Grava e espera conforme a política: em SEMPRE, só retorna depois do fsync
+     * Mensagem já gravada (lote anexado antes) não é escrita de novo, só aguarda a durabilidade
+     */
+    public void gravar(Mensagem msg) throws IOException {
+        aguardar(anexar(msg));
+    }
+
+    /**
+     * Espera conforme a política o que foi anexado até a posição: em SEMPRE, o fsync que a cobre
+     * Quem anexa com uma trava própria espera aqui depois de soltá-la, e os fsyncs se agrupam
+     */
+    public void aguardar(long posicao) throws IOException {
+        if (politica == PoliticaSincronizacao.SEMPRE) {
+            aguardarDurabilidade(posicao);
+        }
+    }
+
+    // Anexa um lote inteiro antes de esperar: um único fsync cobre todas
+    public void anexar(List<Mensagem> msgs) throws IOException {
+        for (Mensagem msg : msgs) {
+            anexar(msg);
+        }
+    }
+
+    // Escreve no segmento mapeado (sem fsync); retorna a posição lógica do fim do log
+    public synchronized long anexar(Mensagem msg) throws IOException {
+        if (!aberto) {
+            throw new IOException("Log de envio fechado");
+        }
+        int seq = msg.getSequenceNumber();
+        if (seq <= ultimaSeq) {
+            return escritoAte;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + msg.getConteudo().length());
+        new CodecMensagem().codificar(msg, bytes); // Codec novo: cada registro se decodifica sozinho
+        byte[] corpo = bytes.toByteArray();
+        int tamanhoRegistro = CABECALHO_REGISTRO + corpo.length;
+        if (tamanhoRegistro + 4 > tamanhoSegmento) {
+            throw new IOException("Mensagem de " + corpo.length + " bytes não cabe em um segmento");
+        }
+
+        Segmento atual = segmentos.peekLast();
+        if (atual == null || atual.escrito + tamanhoRegistro + 4 > tamanhoSegmento) {
+            atual = criarSegmento(atual == null ? 0 : atual.numero + 1, seq);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(corpo);
+        ByteBuffer destino = atual.mapa.duplicate();
+        destino.position(atual.escrito + 4);
+        destino.putInt((int) crc.getValue()).putInt(seq).put(corpo);
+        atual.mapa.putInt(atual.escrito, corpo.length); // Tamanho por último: o registro só aparece inteiro
+        atual.indexar(seq, atual.escrito);
+        atual.escrito += tamanhoRegistro;
+        atual.sujo = true;
+        ultimaSeq = seq;
+        escritoAte = atual.numero * tamanhoSegmento + atual.escrito;
+        return escritoAte;
+    }
+
+    // Espera o fsync que cobre a posição; o sincronizador agrupa todos que esperam
+    private void aguardarDurabilidade(long posicao) throws IOException {
+        synchronized (travaSincronizacao) {
+            if (posicao > solicitadoAte) {
+                solicitadoAte = posicao;
+                travaSincronizacao.notifyAll();
+            }
+            while (duravelAte < posicao && aberto) {
+                try {
+                    travaSincronizacao.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrompido aguardando o fsync do log", e);
+                }
+            }
+        }
+    }
+
+    // Laço do sincronizador: em SEMPRE acorda por pedido, em INTERVALO a cada intervalo
+    private void sincronizar() {
+        while (aberto) {
+            synchronized (travaSincronizacao) {
+                try {
+                    if (politica == PoliticaSincronizacao.SEMPRE) {
+                        while (aberto && solicitadoAte <= duravelAte) {
+                            travaSincronizacao.wait();
+                        }
+                    } else {
+                        travaSincronizacao.wait(intervaloSincronizacaoMs);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            forcar();
+        }
+    }
+
+    // fsync dos segmentos com escritas novas; avança a posição durável até onde estava escrito
+    public void forcar() {
+        long alvo;
+        List<MappedByteBuffer> sujos = new ArrayList<>(2);
+        synchronized (this) {
+            alvo = escritoAte;
+            for (Segmento segmento : segmentos) {
+                if (segmento.sujo) {
+                    segmento.sujo = false;
+                    sujos.add(segmento.mapa);
+                }
+            }
+        }
+        for (MappedByteBuffer mapa : sujos) {
+            mapa.force();
+        }
+        synchronized (travaSincronizacao) {
+            if (alvo > duravelAte) {
+                duravelAte = alvo;
+            }
+            travaSincronizacao.notifyAll();
+        }
+    }
+
+    public synchronized Mensagem ler(int seq) throws IOException {
+        for (Segmento segmento : segmentos) {
+            int deslocamento = segmento.deslocamento(seq);
+            if (deslocamento >= 0) {
+                return lerRegistro(segmento.mapa, deslocamento);
+            }
+        }
+        return null;
+    }
+
+    // Mensagens presentes em [de, ate], em ordem de sequência; registros ilegíveis são pulados
+    public synchronized List<Mensagem> obterIntervalo(int de, int ate) {
+        List<Mensagem> intervalo = new ArrayList<>();
+        for (Segmento segmento : segmentos) {
+            if (segmento.ultimaSeq < de || segmento.primeiraSeq > ate) {
+                continue;
+            }
+            int ultima = Math.min(ate, segmento.ultimaSeq);
+            for (int seq = Math.max(de, segmento.primeiraSeq); seq <= ultima; seq++) {
+                int deslocamento = segmento.deslocamento(seq);
+                if (deslocamento < 0) {
+                    continue;
+                }
+                try {
+                    intervalo.add(lerRegistro(segmento.mapa, deslocamento));
+                } catch (IOException e) {
+                    GerenciadorLog.getInstancia().registrarGlobal(
+                        "Registro ilegível no log de envio (seq " + seq + "): " + e.getMessage());
+                }
+            }
+        }
+        return intervalo;
+    }
+
+    public synchronized boolean contem(int seq) {
+        for (Segmento segmento : segmentos) {
+            if (segmento.deslocamento(seq) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Confirmadas até seq: apaga os segmentos antigos em que tudo já foi confirmado
+     * O segmento em uso nunca é apagado
+     * @return quantidade de segmentos apagados
+     */
+    public synchronized int truncarAte(int seq) {
+        int apagados = 0;
+        while (segmentos.size() > 1 && segmentos.peekFirst().ultimaSeq <= seq) {
+            Segmento segmento = segmentos.pollFirst();
+            try {
+                segmento.canal.close();
+                Files.deleteIfExists(segmento.arquivo);
+                apagados++;
+            } catch (IOException e) {
+                GerenciadorLog.getInstancia().registrarGlobal(
+                    "Falha ao apagar segmento " + segmento.arquivo + ": " + e.getMessage());
+            }
+        }
+        return apagados;
+    }
+
+    // Menor sequência ainda no log (0 se vazio)
+    public synchronized int getPrimeiraSeq() {
+        for (Segmento segmento : segmentos) {
+            if (segmento.ultimaSeq > 0) {
+                return segmento.primeiraSeq;
+            }
+        }
+        return 0;
+    }
+
+    public synchronized int getUltimaSeq() {
+        return ultimaSeq;
+    }
+
+    public PoliticaSincronizacao getPolitica() {
+        return politica;
+    }
+
+    // Resumo para exibição de métricas
+    public synchronized String resumo() {
+        return "segmentos=" + segmentos.size() + ", seq=[" + getPrimeiraSeq() + ", " + ultimaSeq + "]"
+            + ", fsync=" + politica + ", diretorio=" + diretorio;
+    }
+
+    @Override
+    public void close() {
+        if (!aberto) {
+            return;
+        }
+        forcar();
+        aberto = false;
+        synchronized (travaSincronizacao) {
+            travaSincronizacao.notifyAll();
+        }
+        synchronized (this) {
+            for (Segmento segmento : segmentos) {
+                try {
+                    segmento.canal.close();
+                } catch (IOException e) {
+                    // Já fechado
+                }
+            }
+        }
+    }
+
+    // Relê os segmentos existentes e reconstrói o índice; o fim de cada um é o último registro válido
+    private void recuperar() throws IOException {
+        List<Path> arquivos = new ArrayList<>();
+        try (DirectoryStream<Path> listagem = Files.newDirectoryStream(diretorio,
+                PREFIXO_ARQUIVO + "*" + SUFIXO_ARQUIVO)) {
+            for (Path arquivo : listagem) {
+                arquivos.add(arquivo);
+            }
+        }
+        arquivos.sort(null); // Número com zeros à esquerda: a ordem do nome é a ordem dos segmentos
+
+        for (Path arquivo : arquivos) {
+            String nome = arquivo.getFileName().toString();
+            long numero = Long.parseLong(nome.substring(PREFIXO_ARQUIVO.length(),
+                nome.length() - SUFIXO_ARQUIVO.length()));
+            Segmento segmento = abrirSegmento(arquivo, numero, 0);
+            lerSegmento(segmento);
+            if (segmento.ultimaSeq == 0) {
+                segmento.canal.close();
+                Files.deleteIfExists(arquivo);
+                continue;
+            }
+            segmentos.addLast(segmento);
+            ultimaSeq = Math.max(ultimaSeq, segmento.ultimaSeq);
+            escritoAte = segmento.numero * tamanhoSegmento + segmento.escrito;
+        }
+    }
+
+    private void lerSegmento(Segmento segmento) throws IOException {
+        MappedByteBuffer mapa = segmento.mapa;
+        int posicao = 0;
+        int anterior = ultimaSeq;
+        while (posicao + CABECALHO_REGISTRO <= mapa.capacity()) {
+            int tamanho = mapa.getInt(posicao);
+            if (tamanho <= 0 || posicao + CABECALHO_REGISTRO + tamanho > mapa.capacity()) {
+                break;
+            }
+            int seq = mapa.getInt(posicao + 8);
+            byte[] corpo = new byte[tamanho];
+            mapa.get(posicao + CABECALHO_REGISTRO, corpo);
+            CRC32 crc = new CRC32();
+            crc.update(corpo);
+            if ((int) crc.getValue() != mapa.getInt(posicao + 4) || seq <= anterior) {
+                break; // Escrita interrompida: o resto do segmento não vale
+            }
+            if (segmento.ultimaSeq == 0) {
+                segmento.primeiraSeq = seq;
+            }
+            segmento.indexar(seq, posicao);
+            anterior = seq;
+            posicao += CABECALHO_REGISTRO + tamanho;
+        }
+        segmento.escrito = posicao;
+        // Zera o que sobrou depois do último registro válido, para não ressuscitar restos antigos
+        for (int i = posicao; i < mapa.capacity(); i++) {
+            mapa.put(i, (byte) 0);
+        }
+    }
+
+    private Segmento criarSegmento(long numero, int primeiraSeq) throws IOException {
+        Path arquivo = diretorio.resolve(String.format("%s%020d%s", PREFIXO_ARQUIVO, numero, SUFIXO_ARQUIVO));
+        Segmento segmento = abrirSegmento(arquivo, numero, primeiraSeq);
+        segmentos.addLast(segmento);
+        return segmento;
+    }
+
+    private Segmento abrirSegmento(Path arquivo, long numero, int primeiraSeq) throws IOException {
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoSegmento);
+        return new Segmento(arquivo, numero, canal, mapa, primeiraSeq);
+    }
+
+    private static Mensagem lerRegistro(MappedByteBuffer mapa, int deslocamento) throws IOException {
+        int tamanho = mapa.getInt(deslocamento);
+        byte[] corpo = new byte[tamanho];
+        mapa.get(deslocamento + CABECALHO_REGISTRO, corpo);
+        return new CodecMensagem().decodificar(new ByteArrayInputStream(corpo));
+    }
+
+    // Arquivo mapeado com o índice sequência -> deslocamento dos registros dele
+    private static class Segmento {
+        final Path arquivo;
+        final long numero;
+        final FileChannel canal;
+        final MappedByteBuffer mapa;
+        int primeiraSeq;
+        int ultimaSeq;       // 0 = vazio
+        int escrito;         // Fim do último registro
+        boolean sujo;        // Escrito desde o último fsync
+        int[] deslocamentos = new int[256];
+
+        Segmento(Path arquivo, long numero, FileChannel canal, MappedByteBuffer mapa, int primeiraSeq) {
+            this.arquivo = arquivo;
+            this.numero = numero;
+            this.canal = canal;
+            this.mapa = mapa;
+            this.primeiraSeq = primeiraSeq;
+            Arrays.fill(deslocamentos, -1);
+        }
+
+        void indexar(int seq, int deslocamento) {
+            int indice = seq - primeiraSeq;
+            if (indice >= deslocamentos.length) {
+                int tamanhoAnterior = deslocamentos.length;
+                deslocamentos = Arrays.copyOf(deslocamentos, Math.max(tamanhoAnterior * 2, indice + 1));
+                Arrays.fill(deslocamentos, tamanhoAnterior, deslocamentos.length, -1);
+            }
+            deslocamentos[indice] = deslocamento;
+            ultimaSeq = seq;
+        }
+
+        int deslocamento(int seq) {
+            int indice = seq - primeiraSeq;
+            if (ultimaSeq == 0 || indice < 0 || seq > ultimaSeq || indice >= deslocamentos.length) {
+                return -1;
+            }
+            return deslocamentos[indice];
+        }
+    }
+}
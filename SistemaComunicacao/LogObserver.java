@@ -23,6 +23,13 @@ public class LogObserver implements EventoMensagemObserver {
             " [SEQ:" + msg.getSequenceNumber() + "]");
     }
     
+    @Override
+    public void onAckCumulativoEnviado(String idNo, String destinatario, int ateSeq) {
+        GerenciadorLog.getInstancia().registrar(idNo, 
+            "Enviando ACK cumulativo para " + destinatario + 
+            " [ATÉ SEQ:" + ateSeq + "]");
+    }
+    
     @Override
     public void onNackEnviado(String idNo, String destinatario, int ultimaSeqRecebida) {
         GerenciadorLog.getInstancia().registrar(idNo, 
@@ -36,6 +43,12 @@ public class LogObserver implements EventoMensagemObserver {
             "Tratando falha do vizinho: " + motivoFalha);
     }
     
+    @Override
+    public void onVizinhoSuspeito(String idNo, String idVizinho, double phi) {
+        GerenciadorLog.getInstancia().registrar(idNo, 
+            String.format("Vizinho %s suspeito [phi=%.1f]", idVizinho, phi));
+    }
+    
     @Override
     public void onMensagemReeviada(String idNo, Mensagem msg, int tentativa) {
         GerenciadorLog.getInstancia().registrar(idNo, 
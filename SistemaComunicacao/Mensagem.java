@@ -1,35 +1,74 @@
 import java.io.Serializable;
 
 public class Mensagem implements Serializable {
-    private String senderId;
-    private int sequenceNumber;
-    private String conteudo;
-    private long timestamp;
+    // Imutável: a mesma instância pode ser compartilhada entre nós da mesma JVM
+    private final String senderId;
+    private final int sequenceNumber;
+    private final String conteudo;
+    private final long timestamp;
+
+    // Ordem causal: delta do vetor de dependências em relação à mensagem anterior do mesmo remetente
+    // (quantas mensagens a mais de cada remetente ele tinha entregue); só entradas que mudaram
+    private static final String[] SEM_DEPENDENCIAS = new String[0];
+    private static final int[] SEM_INCREMENTOS = new int[0];
+    private final String[] dependencias;
+    private final int[] incrementos;
+
+    // Índice do remetente no DicionarioNos, resolvido na primeira consulta (0 = ainda não resolvido)
+    // Não trafega: cada JVM atribui os próprios índices
+    private transient int indiceRemetente;
 
     // Construtor original (mantido para compatibilidade)
     public Mensagem(String senderId, int sequenceNumber, String conteudo) {
-        this.senderId = senderId;
-        this.sequenceNumber = sequenceNumber;
-        this.conteudo = conteudo;
-        this.timestamp = System.currentTimeMillis();
+        this(senderId, sequenceNumber, conteudo, System.currentTimeMillis());
     }
 
     // NOVO: Construtor com timestamp customizado
     public Mensagem(String senderId, int sequenceNumber, String conteudo, long timestamp) {
+        this(senderId, sequenceNumber, conteudo, timestamp, SEM_DEPENDENCIAS, SEM_INCREMENTOS);
+    }
+
+    // Construtor com o delta de dependências causais (arrays paralelos: remetente e incremento)
+    public Mensagem(String senderId, int sequenceNumber, String conteudo, long timestamp,
+                    String[] dependencias, int[] incrementos) {
         this.senderId = senderId;
         this.sequenceNumber = sequenceNumber;
         this.conteudo = conteudo;
         this.timestamp = timestamp;
+        // Cópias: quem criou a mensagem não altera depois o que ela carrega
+        this.dependencias = dependencias.length == 0 ? SEM_DEPENDENCIAS : dependencias.clone();
+        this.incrementos = incrementos.length == 0 ? SEM_INCREMENTOS : incrementos.clone();
     }
 
     public String getUniqueId() {
-        return String.format("%s-%d-%d", senderId, sequenceNumber, timestamp);
+        return senderId + "-" + sequenceNumber + "-" + timestamp;
+    }
+
+    public int getIndiceRemetente() {
+        int indice = indiceRemetente;
+        if (indice == 0) {
+            indice = DicionarioNos.getInstancia().indice(senderId);
+            indiceRemetente = indice;
+        }
+        return indice;
+    }
+
+    // Identidade compacta: índice do remetente nos 32 bits altos, sequência nos baixos
+    public long getIdentidade() {
+        return identidade(getIndiceRemetente(), sequenceNumber);
+    }
+
+    public static long identidade(int indiceRemetente, int sequenceNumber) {
+        return ((long) indiceRemetente << 32) | (sequenceNumber & 0xFFFFFFFFL);
     }
 
     public String getSenderId() { return senderId; }
     public int getSequenceNumber() { return sequenceNumber; }
     public String getConteudo() { return conteudo; }
     public long getTimestamp() { return timestamp; }
+    // Cópias, pela mesma razão (os vetores vazios são compartilhados, mas não há o que alterar neles)
+    public String[] getDependencias() { return dependencias.length == 0 ? dependencias : dependencias.clone(); }
+    public int[] getIncrementos() { return incrementos.length == 0 ? incrementos : incrementos.clone(); }
 
     //Representação JSON para logging
     @Override
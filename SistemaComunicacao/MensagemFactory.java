@@ -16,10 +16,31 @@ public class MensagemFactory {
     // Cria mensagem de controle (ACK, NACK, HEARTBEAT)
     public static Mensagem criarMensagemControle(String senderId, int sequenceNumber, 
                                                   TipoMensagem tipo) {
-        String conteudo = String.format("[CONTROLE:%s]", tipo.name());
+        String conteudo = prefixoControle(tipo);
         return new Mensagem(senderId, sequenceNumber, conteudo);
     }
     
+    // Cria mensagem da ordem causal, com o delta do vetor de dependências do remetente
+    public static Mensagem criarMensagemCausal(String senderId, int sequenceNumber, String conteudo,
+                                               String[] dependencias, int[] incrementos) {
+        validarParametros(senderId, conteudo);
+        return new Mensagem(senderId, sequenceNumber, conteudo, System.currentTimeMillis(), 
+                            dependencias, incrementos);
+    }
+    
+    // Cria o lote de ordem total: trafega como broadcast comum do sequenciador
+    public static Mensagem criarMensagemOrdem(String senderId, int sequenceNumber, String trechos) {
+        return new Mensagem(senderId, sequenceNumber, prefixoControle(TipoMensagem.ORDEM) + trechos);
+    }
+    
+    public static boolean isMensagemOrdem(Mensagem msg) {
+        return msg.getConteudo().startsWith(prefixoControle(TipoMensagem.ORDEM));
+    }
+    
+    public static String prefixoControle(TipoMensagem tipo) {
+        return "[CONTROLE:" + tipo.name() + "]";
+    }
+    
     // Cria mensagem com timestamp customizado (para testes)
     public static Mensagem criarMensagemComTimestamp(String senderId, int sequenceNumber, 
                                                       String conteudo, long timestamp) {
@@ -37,6 +58,11 @@ public class MensagemFactory {
             throw new IllegalArgumentException("Conteúdo não pode ser nulo");
         }
         
+        // Conteúdo de aplicação não pode se passar por mensagem de controle
+        if (conteudo.startsWith("[CONTROLE:")) {
+            throw new IllegalArgumentException("Conteúdo não pode começar com [CONTROLE:");
+        }
+        
         if (conteudo.length() > TAMANHO_MAX_CONTEUDO) {
             throw new IllegalArgumentException(
                 String.format("Conteúdo excede tamanho máximo de %d caracteres", 
@@ -10,6 +10,7 @@ public class MetricasObserver implements EventoMensagemObserver {
     private final ConcurrentHashMap<String, AtomicInteger> acksEnviados;
     private final ConcurrentHashMap<String, AtomicInteger> nacksEnviados;
     private final ConcurrentHashMap<String, AtomicInteger> falhasDetectadas;
+    private final ConcurrentHashMap<String, AtomicInteger> suspeitas;
     private final ConcurrentHashMap<String, AtomicInteger> reenvios;
     
     public MetricasObserver() {
@@ -18,6 +19,7 @@ public class MetricasObserver implements EventoMensagemObserver {
         this.acksEnviados = new ConcurrentHashMap<>();
         this.nacksEnviados = new ConcurrentHashMap<>();
         this.falhasDetectadas = new ConcurrentHashMap<>();
+        this.suspeitas = new ConcurrentHashMap<>();
         this.reenvios = new ConcurrentHashMap<>();
     }
     
@@ -39,6 +41,12 @@ public class MetricasObserver implements EventoMensagemObserver {
                     .incrementAndGet();
     }
     
+    @Override
+    public void onAckCumulativoEnviado(String idNo, String destinatario, int ateSeq) {
+        acksEnviados.computeIfAbsent(idNo, k -> new AtomicInteger(0))
+                    .incrementAndGet();
+    }
+    
     @Override
     public void onNackEnviado(String idNo, String destinatario, int ultimaSeqRecebida) {
         nacksEnviados.computeIfAbsent(idNo, k -> new AtomicInteger(0))
@@ -51,6 +59,12 @@ public class MetricasObserver implements EventoMensagemObserver {
                         .incrementAndGet();
     }
     
+    @Override
+    public void onVizinhoSuspeito(String idNo, String idVizinho, double phi) {
+        suspeitas.computeIfAbsent(idNo, k -> new AtomicInteger(0))
+                 .incrementAndGet();
+    }
+    
     @Override
     public void onMensagemReeviada(String idNo, Mensagem msg, int tentativa) {
         reenvios.computeIfAbsent(idNo, k -> new AtomicInteger(0))
@@ -65,6 +79,7 @@ public class MetricasObserver implements EventoMensagemObserver {
         System.out.println("ACKs Enviados: " + acksEnviados);
         System.out.println("NACKs Enviados: " + nacksEnviados);
         System.out.println("Falhas Detectadas: " + falhasDetectadas);
+        System.out.println("Suspeitas (phi): " + suspeitas);
         System.out.println("Reenvios: " + reenvios);
         System.out.println("============================\n");
     }
@@ -0,0 +1,8 @@
+/**
+ * Como um broadcast chega aos nós do grupo
+ */
+public enum ModoDifusao {
+    DIRETO,   // Só aos vizinhos diretos, com ACK/NACK e retransmissão por enlace
+    ARVORE,   // Repassado pelas arestas da árvore geradora até todo o grafo
+    FOFOCA    // Empurrado a vizinhos sorteados e completado por troca periódica de resumos
+}
@@ -1,10 +1,15 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.rmi.*;
-import java.rmi.server.UnicastRemoteObject;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
-public class No extends UnicastRemoteObject implements NoInterface {
+/**
+ * Nó do sistema: contém a lógica do protocolo (envio, ACK/NACK, heartbeat)
+ * A comunicação com os vizinhos é delegada ao Transporte configurado
+ */
+public class No implements NoInterface {
     // Estado do nó
     private String idNo;
     private List<NoInterface> vizinhos;
@@ -12,40 +17,148 @@ public class No extends UnicastRemoteObject implements NoInterface {
     private EstadoNo estado;
 
     // Controle de mensagens
-    private Map<String, Set<String>> mensagensEntregues;
-    private Map<String, Mensagem> mensagensPendentes;
-    private BlockingQueue<Mensagem> filaMensagens;
+    private BufferSequencial mensagensPendentes; // Mensagens próprias aguardando confirmação, por sequência
+    private final FilaEntrega filaMensagens; // Anel sem locks entre as faixas e a thread de entrega
+    private final Queue<Mensagem> entregasAdiadas = new ConcurrentLinkedQueue<>(); // Lotes de ordem próprios não publicados no encerramento
+
+    // Log de envio: com ele, o heap guarda só as pendentes mais recentes e o resto é lido do disco
+    private static final int CACHE_PENDENTES_LOG = 256;
+    private volatile LogEnvio logEnvio;
+    private volatile int recuperadasDe;  // Faixa relida do log ao habilitá-lo, reenviada a cada canal novo
+    private volatile int recuperadasAte;
 
     // Infraestrutura
     private ScheduledExecutorService executor;
 
-    // Para Atomic Broadcast (FIFO)
-    private final Map<String, Integer> ultimaSequencia; // Controla a última sequência recebida de cada nó
-    private final Map<String, ConcurrentSkipListMap<Integer, Mensagem>> mensagensForaDeOrdem;
+    // Temporizadores de retransmissão e de ACK: baldes por tick em vez de um heap no executor
+    public static final long TICK_TEMPORIZADOR_PADRAO_MS = 10;
+    private static final int BALDES_TEMPORIZADOR = 512;
+    private final long tickTemporizadorMs;
+    private volatile RodaTemporizacao roda;
+
+    // Faixas de processamento: cada remetente cai sempre na mesma faixa (FIFO por remetente),
+    // remetentes diferentes são processados em paralelo
+    private static final int NUM_FAIXAS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final int CAPACIDADE_FAIXA = 4096; // Cheia, recusa: o remetente tenta de novo depois
+    private volatile ExecutorService[] faixasRecebimento;
+    private final Transporte transporte;
+
+    // Um canal de saída (fila + thread) por vizinho
+    private final Map<NoInterface, CanalVizinho> canais;
+
+    // Coalescência de envios: cada canal agrupa até a janela expirar ou o lote encher
+    private volatile long janelaLoteMs = 5;
+    private volatile int tamanhoMaxLote = 64;
+
+    // Envio agendado dos ACKs cumulativos pendentes (guardados em cada EstadoRemetente)
+    private final Object travaAcks = new Object();
+    private RodaTemporizacao.Temporizador envioAcksAgendado;
+    private volatile long atrasoAckMs = 20;
+
+    // Para Atomic Broadcast (FIFO): estado de recebimento por remetente, indexado pelo DicionarioNos
+    private volatile EstadoRemetente[] remetentes = new EstadoRemetente[16];
+    private final Object travaRemetentes = new Object();
+
+    // Controle de fluxo por créditos: cada receptor anuncia quantas mensagens além do ACK aceita
+    private volatile int janelaRecepcao = 256;
+    private volatile PoliticaCredito politicaCredito = PoliticaCredito.BLOQUEAR;
+    private volatile long esperaMaximaCreditoMs = 30_000; // Política BLOQUEAR: depois disso o broadcast falha
+    private final Object travaCreditos = new Object();
+    private static final int CAPACIDADE_FILA_SEM_CREDITO = 8192;
+    private final Queue<String> filaSemCredito = new ArrayDeque<>(); // Política ENFILEIRAR, guardada por travaCreditos
+    private long proximaVez;            // Ordem das reservas de sequência, guardada por travaCreditos
+    private final Object travaVez = new Object();
+    private long vezAtual;              // Próxima reserva a entregar aos canais, guardada por travaVez
+
+    // Detecção de falhas phi-accrual: enlaces ociosos recebem ping, qualquer tráfego conta como sinal de vida
+    private volatile long intervaloHeartbeatMs = 500;
+    private volatile double limiarPhi = 8.0;
+    private volatile long prazoSuspeitaMs = 30_000; // Suspeito por mais que isso é tratado como falho e sai
+    private ExecutorService pings; // Pings e anúncios da árvore assíncronos: um vizinho lento não atrasa os demais
+
+    // Modo de difusão: direto aos vizinhos, repassado pela árvore geradora ou por fofoca
+    private volatile ModoDifusao modoDifusao = ModoDifusao.DIRETO;
+    private final ArvoreDifusao arvore;
+
+    // Fofoca: cada mensagem nova vai a alguns vizinhos sorteados; resumos periódicos completam o resto
+    private static final int HISTORICO_FOFOCA = 256; // Mensagens próprias guardadas para quem pedir
+    private volatile int fanoutFofoca = 0;           // 0 = automático, proporcional a log(nós conhecidos)
+    private volatile long intervaloAntiEntropiaMs = 200;
+    private final Object travaAntiEntropia = new Object();
+    private RodaTemporizacao.Temporizador antiEntropiaAgendada;
+
+    // Ordem de entrega: FIFO por remetente, causal (deltas de vetor nas mensagens) ou total
+    private volatile OrdemEntrega ordemEntrega = OrdemEntrega.FIFO;
+    private final EntregaCausal entregaCausal; // Só a thread de entrega usa
+
+    // Ordem total: um sequenciador eleito pelo RegistryManager diz, em lotes, como intercalar os remetentes
+    private final Sequenciador sequenciador = new Sequenciador();
+    private final EntregaTotal entregaTotal; // Só a thread de entrega usa
+    private volatile String sequenciadorAtual;
+    private volatile long termoSequenciador; // Mandato deste nó enquanto for o sequenciador
+    private volatile long janelaOrdemMs = 5;
+    private final Object travaOrdem = new Object();
+    private RodaTemporizacao.Temporizador loteOrdemAgendado;
+
+    // Recuperação: os vizinhos transmitem em bloco o que falta aqui, conforme o vetor do que já chegou
+    private static final int LOTE_ATUALIZACAO = 1024;               // Lidas do buffer ou do log por vez
+    private static final int CICLOS_SEM_PROGRESSO_ATUALIZACAO = 10; // Intervalos de heartbeat sem nada novo
+    private final Object travaAtualizacao = new Object();
+    private volatile AtualizacaoRecuperacao atualizacao;
+
+    // Checkpoint periódico dos contadores: um nó reiniciado continua a sequência e as marcas d'água
+    public static final long INTERVALO_CHECKPOINT_PADRAO_MS = 1000;
+    private volatile Path arquivoCheckpoint;
+    private volatile long intervaloCheckpointMs = INTERVALO_CHECKPOINT_PADRAO_MS;
+    private final Object travaCheckpoint = new Object();
+    private RodaTemporizacao.Temporizador checkpointAgendado;
+    private long assinaturaCheckpoint = -1; // Contador + entregas do último gravado, guardada por travaCheckpoint
+
+    // Por quantos intervalos de heartbeat um remetente que parou ainda tem o fim da rajada verificado
+    private static final int CICLOS_VERIFICACAO_REPASSE = 10;
+
+    // Intervalo mínimo entre NACKs repetidos ao mesmo remetente
+    private volatile long intervaloMinimoNackMs = 50;
 
     // Variáveis para controle de falhas - Atualizado
     private EstrategiaFalha estrategiaFalha;
 
-    private static long ACK_TIMEOUT_MS = 3000; // 3 segundos
-    private static final int MAX_RETRIES = 3;
+    // Tentativas de retransmissão por enlace; o intervalo é o RTO de cada enlace (CanalVizinho)
+    private static final int MAX_RETRIES = 8;
+
+    private static final int CAPACIDADE_FILA_ENTREGA = 8192;
+    private static final int TAMANHO_LOTE_ENTREGA = 64;
 
     // NOVO: Gerenciador de eventos
     private GerenciadorEventos gerenciadorEventos;
 
     public No(String idNo) throws RemoteException {
+        this(idNo, new TransporteRmi());
+    }
+
+    public No(String idNo, Transporte transporte) throws RemoteException {
+        this(idNo, transporte, TICK_TEMPORIZADOR_PADRAO_MS);
+    }
+
+    public No(String idNo, Transporte transporte, long tickTemporizadorMs) throws RemoteException {
         this.idNo = idNo;
+        this.tickTemporizadorMs = tickTemporizadorMs;
+        this.transporte = transporte;
         this.vizinhos = new CopyOnWriteArrayList<>();
         this.contadorSequencia = new AtomicInteger(0);
         this.estado = new EstadoAtivo();
 
-        this.mensagensEntregues = new ConcurrentHashMap<>();
-        this.mensagensPendentes = new ConcurrentHashMap<>();
-        this.ultimaSequencia = new ConcurrentHashMap<>();
-        this.mensagensForaDeOrdem = new ConcurrentHashMap<>();
-        this.filaMensagens = new PriorityBlockingQueue<>(11,
-                Comparator.comparingLong(Mensagem::getTimestamp));
+        this.mensagensPendentes = new BufferSequencial(1024);
+        this.filaMensagens = new FilaEntrega(CAPACIDADE_FILA_ENTREGA);
+        this.canais = new ConcurrentHashMap<>();
+        this.arvore = new ArvoreDifusao(idNo);
+        this.entregaTotal = new EntregaTotal(DicionarioNos.getInstancia().indice(idNo));
+        this.entregaCausal = new EntregaCausal(DicionarioNos.getInstancia().indice(idNo));
 
         this.executor = Executors.newScheduledThreadPool(3);
+        this.faixasRecebimento = criarFaixasRecebimento();
+        this.roda = criarRoda();
+        this.pings = Executors.newCachedThreadPool();
 
         this.estrategiaFalha = new SemFalha();
 
@@ -53,59 +166,533 @@ public class No extends UnicastRemoteObject implements NoInterface {
         this.gerenciadorEventos.adicionarObservador(new LogObserver());
 
         executor.submit(this::processarMensagens);
-        executor.submit(this::enviarHeartbeats);
+        executor.submit(this::monitorarVizinhos);
 
         GerenciadorLog.getInstancia().registrar(idNo, 
             "Nó iniciado no estado: " + estado.getNomeEstado());
     }
 
-    public void broadcast(String conteudo) {
+    public void broadcast(String conteudo) throws RemoteException {
+        enviarComCredito(Collections.singletonList(conteudo));
+    }
+
+    /**
+     * Broadcast em lote: reserva uma faixa contígua de sequências;
+     * os canais agrupam as mensagens em uma única chamada por vizinho
+     */
+    public void broadcast(List<String> conteudos) throws RemoteException {
+        if (conteudos == null || conteudos.isEmpty()) {
+            return;
+        }
+        enviarComCredito(conteudos);
+    }
+
+    /**
+     * Envia o quanto os créditos dos vizinhos permitem; o restante segue a política configurada
+     * A sequência só é reservada depois do crédito e do log, então uma mensagem recusada não deixa lacuna
+     * travaCreditos cobre só a reserva: a espera pelo disco e o enfileiramento nos canais ficam fora
+     */
+    private void enviarComCredito(List<String> conteudos) throws RemoteException {
+        int enviadas = 0;
+        long prazoNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMaximaCreditoMs);
+        while (enviadas < conteudos.size()) {
+            ReservaEnvio reserva;
+            synchronized (travaCreditos) {
+                if (enviadas == 0 && !filaSemCredito.isEmpty()) {
+                    // Com mensagens já na fila local, as novas entram atrás delas para manter a ordem
+                    enfileirarSemCredito(conteudos);
+                    reserva = drenarFilaSemCredito();
+                    enviadas = conteudos.size();
+                } else {
+                    int disponiveis = creditosDisponiveis();
+                    if (disponiveis == 0) {
+                        List<String> restantes = conteudos.subList(enviadas, conteudos.size());
+                        switch (politicaCredito) {
+                            case BLOQUEAR:
+                                if (System.nanoTime() - prazoNanos >= 0) {
+                                    throw new RemoteException("Sem créditos dos vizinhos após " + esperaMaximaCreditoMs 
+                                        + " ms: " + restantes.size() + " mensagem(ns) não enviada(s)");
+                                }
+                                aguardarCreditos();
+                                continue;
+                            case FALHAR:
+                                throw new RemoteException("Sem créditos dos vizinhos: " 
+                                    + restantes.size() + " mensagem(ns) não enviada(s)");
+                            case ENFILEIRAR:
+                                enfileirarSemCredito(restantes);
+                                GerenciadorLog.getInstancia().registrar(idNo, 
+                                    "Sem créditos: " + restantes.size() + " mensagem(ns) na fila local");
+                                return;
+                        }
+                    }
+                    int quantidade = Math.min(disponiveis, conteudos.size() - enviadas);
+                    reserva = reservarSequenciadas(conteudos.subList(enviadas, enviadas + quantidade));
+                    enviadas += reserva.mensagens.size();
+                }
+            }
+            if (reserva == null) {
+                continue;
+            }
+            despachar(reserva);
+            if (reserva.falhaLog != null) {
+                throw new RemoteException("Falha ao gravar no log de envio: " + (conteudos.size() - enviadas) 
+                    + " mensagem(ns) não enviada(s)", reserva.falhaLog);
+            }
+        }
+    }
+
+    /**
+     * Chamado com travaCreditos: cria as mensagens com sequências contíguas e as reserva
+     * O estado é conferido antes: em falha ou desligado ele recusaria o envio e a sequência se perderia
+     */
+    private ReservaEnvio reservarSequenciadas(List<String> conteudos) throws RemoteException {
+        String nomeEstado = estado.getNomeEstado();
+        if ("EM_FALHA".equals(nomeEstado) || "INATIVO".equals(nomeEstado)) {
+            throw new RemoteException("Nó " + idNo + " em estado " + nomeEstado + ": " 
+                + conteudos.size() + " mensagem(ns) não enviada(s)");
+        }
+        int primeiraSeq = contadorSequencia.get() + 1;
+        List<Mensagem> mensagens = new ArrayList<>(conteudos.size());
+        boolean causal = ordemEntrega == OrdemEntrega.CAUSAL;
+        for (int i = 0; i < conteudos.size(); i++) {
+            mensagens.add(causal ? criarMensagemCausal(primeiraSeq + i, conteudos.get(i))
+                : MensagemFactory.criarMensagem(idNo, primeiraSeq + i, conteudos.get(i)));
+        }
+        ReservaEnvio reserva;
         try {
-            Mensagem msg = MensagemFactory.criarMensagem(
-                idNo, 
-                contadorSequencia.incrementAndGet(), 
-                conteudo
-            );
-            
-            // Delega ao estado
-            estado.enviarMensagem(msg, this);
-            
-        } catch (Exception e) {
+            reserva = reservar(mensagens);
+        } catch (RemoteException e) {
+            if (causal) {
+                desfazerDependencias(mensagens);
+            }
+            throw e;
+        }
+        if (causal) {
+            desfazerDependencias(mensagens.subList(reserva.mensagens.size(), mensagens.size()));
+        }
+        return reserva;
+    }
+
+    /**
+     * Chamado com travaCreditos: anexa ao log sem esperar o fsync e só então avança a sequência
+     * Se o log recusar no meio, reserva só o que foi gravado; nada gravado é erro
+     */
+    private ReservaEnvio reservar(List<Mensagem> mensagens) throws RemoteException {
+        LogEnvio log = canais.isEmpty() ? null : logEnvio; // Sem vizinhos, a mensagem não é guardada
+        long posicaoLog = 0;
+        int gravadas = mensagens.size();
+        IOException falhaLog = null;
+        if (log != null) {
+            for (int i = 0; i < mensagens.size(); i++) {
+                try {
+                    posicaoLog = log.anexar(mensagens.get(i));
+                } catch (IOException e) {
+                    gravadas = i;
+                    falhaLog = e;
+                    break;
+                }
+            }
+        }
+        if (gravadas == 0 && falhaLog != null) {
+            throw new RemoteException("Falha ao gravar no log de envio: " + mensagens.size() 
+                + " mensagem(ns) não enviada(s)", falhaLog);
+        }
+        contadorSequencia.addAndGet(gravadas);
+        return new ReservaEnvio(new ArrayList<>(mensagens.subList(0, gravadas)), log, posicaoLog, 
+            proximaVez++, falhaLog);
+    }
+
+    /**
+     * Fora de travaCreditos: espera o log conforme a política (em SEMPRE, um único fsync cobre as
+     * reservas de todos os broadcasts que chegaram juntos) e, na vez da reserva, entrega ao estado
+     * Se o estado recusar no meio (o nó entrou em falha), o restante fica pendente para a recuperação
+     */
+    private void despachar(ReservaEnvio reserva) throws RemoteException {
+        IOException falhaDisco = null;
+        if (reserva.log != null) {
+            try {
+                reserva.log.aguardar(reserva.posicaoLog);
+            } catch (IOException e) {
+                falhaDisco = e;
+            }
+        }
+        List<Mensagem> mensagens = reserva.mensagens;
+        int entregues = 0;
+        RemoteException falha = null;
+        aguardarVez(reserva.vez);
+        try {
+            if (falhaDisco != null) {
+                throw new RemoteException("Falha ao sincronizar o log de envio", falhaDisco);
+            }
+            for (Mensagem msg : mensagens) {
+                estado.enviarMensagem(msg, this);
+                entregues++;
+            }
+            Mensagem ultima = mensagens.get(mensagens.size() - 1);
+            if (ordemEntrega == OrdemEntrega.TOTAL && !MensagemFactory.isMensagemOrdem(ultima) 
+                    && sequenciador.registrar(DicionarioNos.getInstancia().indice(idNo), ultima.getSequenceNumber())) {
+                agendarLoteOrdem();
+            }
+        } catch (RemoteException e) {
+            falha = e;
+            for (Mensagem msg : mensagens.subList(entregues, mensagens.size())) {
+                mensagensPendentes.adicionar(msg);
+            }
+        } finally {
+            passarVez();
+        }
+        if (falha != null) {
+            throw new RemoteException((mensagens.size() - entregues) 
+                + " mensagem(ns) guardada(s) para reenvio na recuperação: " + falha.getMessage(), falha);
+        }
+    }
+
+    // Os canais recebem as reservas na ordem em que foram feitas, mesmo com o fsync fora da trava
+    private void aguardarVez(long vez) {
+        boolean interrompida = false;
+        synchronized (travaVez) {
+            while (vezAtual != vez) {
+                try {
+                    travaVez.wait();
+                } catch (InterruptedException e) {
+                    interrompida = true; // A vez não pode ser pulada: as reservas seguintes esperam por ela
+                }
+            }
+        }
+        if (interrompida) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void passarVez() {
+        synchronized (travaVez) {
+            vezAtual++;
+            travaVez.notifyAll();
+        }
+    }
+
+    // Mensagens causais que não foram reservadas: o delta que elas levariam volta para a próxima
+    private void desfazerDependencias(List<Mensagem> mensagens) {
+        DicionarioNos dicionario = DicionarioNos.getInstancia();
+        for (Mensagem msg : mensagens) {
+            String[] dependencias = msg.getDependencias();
+            int[] incrementos = msg.getIncrementos();
+            for (int i = 0; i < dependencias.length; i++) {
+                EstadoRemetente remetente = estadoRemetente(dicionario.indice(dependencias[i]));
+                remetente.setDependenciaEnviada(remetente.getDependenciaEnviada() - incrementos[i]);
+            }
+        }
+    }
+
+    /**
+     * Anexa o delta do vetor de dependências: de cada remetente, quanto este nó entregou
+     * desde a mensagem anterior; remetentes sem entregas novas não ocupam espaço
+     * Chamado com travaCreditos, que também guarda o que já foi anunciado
+     */
+    private Mensagem criarMensagemCausal(int seq, String conteudo) {
+        EstadoRemetente[] atuais = remetentes;
+        String[] dependencias = new String[atuais.length];
+        int[] incrementos = new int[atuais.length];
+        int quantidade = 0;
+        for (EstadoRemetente remetente : atuais) {
+            if (remetente == null || remetente.getIdNo().equals(idNo)) {
+                continue;
+            }
+            int entregue = remetente.getEntregueAte();
+            if (entregue > remetente.getDependenciaEnviada()) {
+                dependencias[quantidade] = remetente.getIdNo();
+                incrementos[quantidade++] = entregue - remetente.getDependenciaEnviada();
+                remetente.setDependenciaEnviada(entregue);
+            }
+        }
+        return MensagemFactory.criarMensagemCausal(idNo, seq, conteudo, 
+            Arrays.copyOf(dependencias, quantidade), Arrays.copyOf(incrementos, quantidade));
+    }
+
+    // Quantas mensagens novas cabem nos créditos de todos os vizinhos
+    private int creditosDisponiveis() {
+        if (modoDifusao == ModoDifusao.FOFOCA) {
+            return Integer.MAX_VALUE; // Créditos são estado por receptor, que a fofoca não mantém
+        }
+        int proximaSeq = contadorSequencia.get() + 1;
+        int disponiveis = Integer.MAX_VALUE;
+        for (CanalVizinho canal : canais.values()) {
+            if (canal.isSuspeito()) {
+                continue; // Fora do ar não anuncia créditos; ao voltar, recebe o que falta por NACK e reenvio
+            }
+            disponiveis = Math.min(disponiveis, canal.getLimiteCredito() - proximaSeq + 1);
+        }
+        return Math.max(0, disponiveis);
+    }
+
+    // Chamado com travaCreditos: espera um anúncio de créditos ou a saída de um vizinho
+    private void aguardarCreditos() throws RemoteException {
+        try {
+            travaCreditos.wait(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Broadcast interrompido aguardando créditos", e);
+        }
+    }
+
+    // Chamado com travaCreditos: a fila local é limitada; o que não cabe é recusado inteiro
+    private void enfileirarSemCredito(List<String> conteudos) throws RemoteException {
+        if (filaSemCredito.size() + conteudos.size() > CAPACIDADE_FILA_SEM_CREDITO) {
+            throw new RemoteException("Fila local sem créditos cheia (" + filaSemCredito.size() + "): " 
+                + conteudos.size() + " mensagem(ns) não enviada(s)");
+        }
+        filaSemCredito.addAll(conteudos);
+    }
+
+    /**
+     * Chamado com travaCreditos: reserva da fila local o que os créditos já permitem
+     * Só sai da fila o que foi reservado; o resto espera os próximos créditos
+     * @return a reserva a despachar fora da trava, ou null se nada foi reservado
+     */
+    private ReservaEnvio drenarFilaSemCredito() {
+        int disponiveis = creditosDisponiveis();
+        if (disponiveis == 0 || filaSemCredito.isEmpty()) {
+            return null;
+        }
+        List<String> lote = new ArrayList<>(Math.min(disponiveis, filaSemCredito.size()));
+        for (String conteudo : filaSemCredito) {
+            if (lote.size() == disponiveis) {
+                break;
+            }
+            lote.add(conteudo);
+        }
+        try {
+            ReservaEnvio reserva = reservarSequenciadas(lote);
+            for (int i = 0; i < reserva.mensagens.size(); i++) {
+                filaSemCredito.poll();
+            }
+            return reserva;
+        } catch (RemoteException e) {
             GerenciadorLog.getInstancia().registrar(idNo, 
-                "Erro ao broadcast: " + e.getMessage());
+                "Fila local sem créditos retida: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Créditos mudaram (anúncio recebido ou vizinho removido): acorda quem espera e drena a fila local
+    private void creditosAtualizados() {
+        ReservaEnvio reserva;
+        synchronized (travaCreditos) {
+            travaCreditos.notifyAll();
+            reserva = drenarFilaSemCredito();
+        }
+        if (reserva != null) {
+            despacharFilaSemCredito(reserva);
         }
     }
 
+    // Ninguém espera o resultado da fila local: o fsync e o envio saem da thread que trouxe os créditos
+    private void despacharFilaSemCredito(ReservaEnvio reserva) {
+        Runnable envio = () -> {
+            try {
+                despachar(reserva);
+            } catch (RemoteException e) {
+                GerenciadorLog.getInstancia().registrar(idNo, 
+                    "Erro ao enviar da fila local: " + e.getMessage());
+            }
+        };
+        try {
+            executor.execute(envio);
+        } catch (RejectedExecutionException e) {
+            envio.run(); // Nó encerrando: a vez da reserva precisa passar mesmo assim
+        }
+    }
+
+    /**
+     * Créditos anunciados aos remetentes: a janela de recepção, reduzida quando a fila de entrega enche
+     * Nunca zero, para que uma mensagem ainda passe e traga o próximo ACK com créditos atualizados
+     */
+    public int creditoAnunciado() {
+        int capacidade = filaMensagens.capacidade();
+        int livre = Math.max(0, capacidade - filaMensagens.tamanho());
+        return Math.max(1, (int) ((long) janelaRecepcao * livre / capacidade));
+    }
+
     /**
      * NOVO: Método auxiliar chamado pelo estado
      */
     public void processarEnvioMensagem(Mensagem msg) throws RemoteException {
         GerenciadorLog.getInstancia().registrar(idNo, "Broadcasting mensagem: " + msg);
-        mensagensPendentes.put(msg.getUniqueId(), msg);
-        executor.schedule(() -> verificarACK(msg, 0), ACK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        if (canais.isEmpty()) {
+            return; // Sem vizinhos, ninguém vai confirmar nem pedir a mensagem
+        }
+        // Write-ahead: quem reservou a sequência já gravou a mensagem e esperou o log (ver despachar)
+        LogEnvio log = logEnvio;
+        mensagensPendentes.adicionar(msg);
+        if (log != null) {
+            mensagensPendentes.liberarAte(msg.getSequenceNumber() - CACHE_PENDENTES_LOG);
+        }
+        if (modoDifusao == ModoDifusao.FOFOCA) {
+            // Sem estado por receptor: a mensagem fica no histórico para os resumos e segue aos sorteados
+            mensagensPendentes.liberarAte(msg.getSequenceNumber() - HISTORICO_FOFOCA);
+            if (log != null) {
+                log.truncarAte(msg.getSequenceNumber() - HISTORICO_FOFOCA);
+            }
+            for (CanalVizinho canal : canaisDeEnvio(null)) {
+                canal.enfileirar(msg);
+            }
+            return;
+        }
+        // Registra antes de enfileirar: o canal arma o temporizador quando enviar
+        for (CanalVizinho canal : canaisDeEnvio(null)) {
+            canal.registrarRetransmissao(new RetransmissaoPendente(this, msg, canal));
+            canal.enfileirar(msg);
+        }
+    }
 
-        for (NoInterface vizinho : vizinhos) {
-            try {
-                vizinho.receive(msg);
-            } catch (RemoteException e) {
-                GerenciadorLog.getInstancia().registrar(idNo, 
-                    "Falha ao enviar para vizinho: " + e.getMessage());
-                tratarFalhaVizinho(vizinho);
+    /**
+     * Destinos conforme o modo: todos os vizinhos, as arestas da árvore ou alguns sorteados
+     * @param idEnlace vizinho de onde a mensagem veio (null para as próprias), que não a recebe de volta
+     */
+    private Collection<CanalVizinho> canaisDeEnvio(String idEnlace) {
+        ModoDifusao modo = modoDifusao;
+        if (modo == ModoDifusao.DIRETO) {
+            return canais.values();
+        }
+        List<CanalVizinho> destinos = new ArrayList<>();
+        for (CanalVizinho canal : canais.values()) {
+            String idVizinho = canal.getIdVizinho();
+            if (!idVizinho.equals(idEnlace) && (modo == ModoDifusao.FOFOCA || arvore.isAresta(idVizinho))) {
+                destinos.add(canal);
             }
         }
+        if (modo == ModoDifusao.FOFOCA) {
+            Collections.shuffle(destinos, ThreadLocalRandom.current());
+            return destinos.subList(0, Math.min(destinos.size(), fanoutEfetivo()));
+        }
+        // Árvore ainda sem arestas (anúncios a caminho): as próprias mensagens vão a todos
+        return destinos.isEmpty() && idEnlace == null ? canais.values() : destinos;
     }
 
+    // Fanout automático ~ ln(n) + 1: com n nós, a fofoca alcança todos com alta probabilidade
+    private int fanoutEfetivo() {
+        int configurado = fanoutFofoca;
+        if (configurado > 0) {
+            return configurado;
+        }
+        int conhecidos = 1;
+        for (EstadoRemetente remetente : remetentes) {
+            if (remetente != null) {
+                conhecidos++;
+            }
+        }
+        return Math.max(2, (int) Math.ceil(Math.log(conhecidos)) + 1);
+    }
+
+
     @Override
-    public synchronized void receive(Mensagem msg) throws RemoteException {
+    public void receive(Mensagem msg) throws RemoteException {
+        registrarChegada(Collections.singletonList(msg), msg.getSenderId());
         // Delega ao estado atual
         estado.receberMensagem(msg, this);
     }
 
+    // Lote sem identificação do vizinho: só traz mensagens do próprio vizinho que enviou
+    @Override
+    public void receiveBatch(List<Mensagem> msgs) throws RemoteException {
+        if (msgs.isEmpty()) {
+            return;
+        }
+        registrarChegada(msgs, msgs.get(0).getSenderId());
+        receberLote(msgs);
+    }
+
+    @Override
+    public void receiveBatch(List<Mensagem> msgs, String remetenteId, int ackAte, int credito) throws RemoteException {
+        registrarChegada(msgs, remetenteId);
+        receberLote(msgs);
+        // ACK cumulativo que veio de carona no lote
+        if (ackAte > 0) {
+            ackCumulativo(remetenteId, ackAte, credito);
+        }
+    }
+
+    private void receberLote(List<Mensagem> msgs) throws RemoteException {
+        // Cada mensagem do lote segue o mesmo caminho de receive()
+        for (Mensagem msg : msgs) {
+            estado.receberMensagem(msg, this);
+        }
+    }
+
+    /**
+     * Mensagens chegaram pelo vizinho: renova o contato com ele (não com o remetente original)
+     * e repassa pela árvore ou por fofoca. O NoLocal chama antes de enfileirar, pois a fila não guarda o vizinho
+     */
+    public void registrarChegada(List<Mensagem> msgs, String idEnlace) {
+        registrarContato(idEnlace);
+        repassar(msgs, idEnlace);
+    }
+
+    /**
+     * Repasse: a primeira cópia de cada mensagem segue para as outras arestas da árvore,
+     * ou para alguns vizinhos sorteados na fofoca (uma única vez por nó)
+     * Cópias repetidas (retransmissões, laços enquanto a árvore se refaz, resumos) param aqui
+     * @param idEnlace vizinho de onde as mensagens vieram, que não as recebe de volta
+     */
+    private void repassar(List<Mensagem> msgs, String idEnlace) {
+        if (modoDifusao == ModoDifusao.DIRETO || !"ATIVO".equals(estado.getNomeEstado())) {
+            return;
+        }
+        List<Mensagem> novas = new ArrayList<>(msgs.size());
+        for (Mensagem msg : msgs) {
+            if (!msg.getSenderId().equals(idNo) 
+                    && estadoRemetente(msg.getIndiceRemetente()).registrarRepasse(msg, idEnlace)) {
+                novas.add(msg);
+            }
+        }
+        if (novas.isEmpty()) {
+            return;
+        }
+        for (CanalVizinho canal : canaisDeEnvio(idEnlace)) {
+            String idVizinho = canal.getIdVizinho();
+            for (Mensagem msg : novas) {
+                if (!idVizinho.equals(msg.getSenderId())) {
+                    canal.enfileirar(msg);
+                }
+            }
+        }
+    }
+
     /**
      * NOVO: Método auxiliar chamado pelo estado
-     * Contém a lógica real de processamento
+     * Encaminha a mensagem para a faixa do remetente; não bloqueia quem chamou receive
      */
     public void processarMensagemRecebida(Mensagem msg) throws RemoteException {
+        int faixa = msg.getIndiceRemetente() % faixasRecebimento.length;
+        try {
+            faixasRecebimento[faixa].execute(() -> processarNaFaixa(msg));
+        } catch (RejectedExecutionException e) {
+            // Encerrado ou com a faixa cheia: o canal do vizinho reenvia o lote mais tarde
+            throw new RemoteException("Nó " + idNo + " não está aceitando mensagens", e);
+        }
+    }
+
+    public RodaTemporizacao getRodaTemporizacao() {
+        return roda;
+    }
+
+    private RodaTemporizacao criarRoda() {
+        RodaTemporizacao novaRoda = new RodaTemporizacao(idNo, tickTemporizadorMs, BALDES_TEMPORIZADOR);
+        novaRoda.iniciar();
+        return novaRoda;
+    }
+
+    private ExecutorService[] criarFaixasRecebimento() {
+        ExecutorService[] faixas = new ExecutorService[NUM_FAIXAS];
+        for (int i = 0; i < faixas.length; i++) {
+            faixas[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, 
+                new ArrayBlockingQueue<>(CAPACIDADE_FAIXA));
+        }
+        return faixas;
+    }
+
+    // Contém a lógica real de processamento; roda sempre na faixa do remetente
+    private void processarNaFaixa(Mensagem msg) {
         // Aplicação da estratégia
         try {
             boolean deveProcessar = estrategiaFalha.processar(msg, new RegistradorLog(idNo));
@@ -121,180 +708,875 @@ public class No extends UnicastRemoteObject implements NoInterface {
 
         gerenciadorEventos.notificarMensagemRecebida(idNo, msg);
 
-        String senderId = msg.getSenderId();
+        EstadoRemetente remetente = estadoRemetente(msg.getIndiceRemetente());
         int seqNumber = msg.getSequenceNumber();
-        String idMsg = msg.getUniqueId();
-        int ultimaSeq = ultimaSequencia.getOrDefault(senderId, 0);
+        int ultimaSeq = remetente.getUltimaSequencia();
 
         if (seqNumber == ultimaSeq + 1) {
-            if (!mensagensEntregues.computeIfAbsent(senderId, k -> ConcurrentHashMap.newKeySet()).contains(idMsg)) {
-                filaMensagens.add(msg);
-                ultimaSequencia.put(senderId, seqNumber);
-                enviarACK(senderId, ultimaSeq);
-                processarMensagensForaDeOrdem(senderId);
+            if (!remetente.getEntregues().contem(seqNumber)) {
+                if (!enfileirarEntrega(msg)) {
+                    return; // Sem ACK: o remetente retransmite e a faixa reiniciada aceita de novo
+                }
+                remetente.setUltimaSequencia(seqNumber);
+                processarMensagensForaDeOrdem(remetente);
+                agendarAck(remetente);
+                if (atualizacao != null) {
+                    verificarAtualizacao();
+                }
             }
+        } else if (seqNumber <= ultimaSeq) {
+            // Repetida: o ACK anterior se perdeu ou o remetente reiniciou e reenvia do log
+            agendarAck(remetente);
         } else if (seqNumber > ultimaSeq + 1) {
-            mensagensForaDeOrdem.computeIfAbsent(senderId, k -> new ConcurrentSkipListMap<>())
-                    .put(seqNumber, msg);
-            enviarNACK(senderId, ultimaSeq);
+            BufferSequencial foraDeOrdem = remetente.getForaDeOrdem();
+            if (seqNumber - ultimaSeq > janelaRecepcao) {
+                // Além dos créditos: o buffer cresce com a distância, não com a quantidade guardada,
+                // então nada fora de [ultimaSeq + 1, ultimaSeq + janela] entra; volta por retransmissão
+                GerenciadorLog.getInstancia().registrar(idNo, 
+                    "Fora da janela de recepção para " + remetente.getIdNo() + ", descartando seq " + seqNumber);
+                return;
+            }
+            // Só abre lacuna nova se passar da maior sequência já vista
+            boolean novaLacuna = seqNumber > (foraDeOrdem.tamanho() == 0 ? ultimaSeq : foraDeOrdem.getFim()) + 1;
+            foraDeOrdem.adicionar(msg);
+
+            long agora = System.currentTimeMillis();
+            // Na fofoca não há NACK: as lacunas são fechadas pela troca de resumos
+            if (modoDifusao != ModoDifusao.FOFOCA 
+                    && (novaLacuna || agora - remetente.getUltimoNack() >= intervaloMinimoNackMs)) {
+                remetente.setUltimoNack(agora);
+                enviarNACK(remetente, ultimaSeq, foraDeOrdem.lacunas(ultimaSeq));
+            }
         }
     }
 
-    private void enviarNACK(String senderId, int lastReceivedSeq) {
+    // Estado do remetente pelo índice; o vetor cresce sob demanda
+    private EstadoRemetente estadoRemetente(int indice) {
+        EstadoRemetente[] atuais = remetentes;
+        if (indice < atuais.length && atuais[indice] != null) {
+            return atuais[indice];
+        }
+        synchronized (travaRemetentes) {
+            atuais = remetentes;
+            if (indice >= atuais.length) {
+                atuais = Arrays.copyOf(atuais, Math.max(atuais.length * 2, indice + 1));
+            }
+            if (atuais[indice] == null) {
+                atuais[indice] = new EstadoRemetente(indice, DicionarioNos.getInstancia().nome(indice), 
+                    intervaloHeartbeatMs);
+            }
+            remetentes = atuais;
+            return atuais[indice];
+        }
+    }
+
+    private void enviarNACK(EstadoRemetente remetente, int lastReceivedSeq, int[] lacunas) {
+        String senderId = remetente.getIdNo();
+        // Remetente fora da vizinhança: quem repara é o vizinho que repassou as mensagens
+        CanalVizinho enlace = modoDifusao == ModoDifusao.ARVORE && remetente.getEnlaceRepasse() != null && obterCanal(senderId) == null
+            ? obterCanal(remetente.getEnlaceRepasse()) : null;
+        if (enlace != null) {
+            try {
+                gerenciadorEventos.notificarNackEnviado(idNo, senderId, lastReceivedSeq);
+                enlace.getVizinho().nackRepasse(idNo, senderId, lacunas);
+            } catch (RemoteException e) {
+                GerenciadorLog.getInstancia().registrar(idNo, 
+                    "Falha ao enviar NACK de repasse para " + enlace.getIdVizinho());
+            }
+            return;
+        }
         try {
-            NoInterface sender = RegistryManager.getInstancia().buscarNo(senderId);
-            sender.handleNACK(idNo, lastReceivedSeq);
+            NoInterface sender = obterNo(senderId);
+            gerenciadorEventos.notificarNackEnviado(idNo, senderId, lastReceivedSeq);
+            sender.handleNACK(idNo, lastReceivedSeq, lacunas, creditoAnunciado());
         } catch (Exception e) {
+            transporte.invalidar(senderId);
             GerenciadorLog.getInstancia().registrar(idNo, 
                 "Falha ao enviar NACK para " + senderId);
         }
     }
 
-    private void processarMensagensForaDeOrdem(String senderId) {
-        ConcurrentSkipListMap<Integer, Mensagem> mensagens = mensagensForaDeOrdem.get(senderId);
-        if (mensagens == null)
+    // Libera o que já foi aceito e encadeia as mensagens fora de ordem que ficaram contíguas
+    private void processarMensagensForaDeOrdem(EstadoRemetente remetente) {
+        BufferSequencial mensagens = remetente.getForaDeOrdem();
+        mensagens.liberarAte(remetente.getUltimaSequencia());
+
+        int nextExpected = remetente.getUltimaSequencia() + 1;
+        Mensagem msg;
+        while ((msg = mensagens.obter(nextExpected)) != null) {
+            if (!remetente.getEntregues().contem(nextExpected)) {
+                if (!enfileirarEntrega(msg)) {
+                    return; // Continua no buffer, ainda não aceita
+                }
+                remetente.setUltimaSequencia(nextExpected);
+            }
+            mensagens.liberarAte(nextExpected);
+            nextExpected++;
+        }
+    }
+
+    /**
+     * ACK atrasado: registra até onde o remetente foi recebido em ordem
+     * e envia um único ACK cumulativo ao fim do atraso, a menos que ele
+     * siga antes de carona em um lote de dados para o mesmo vizinho
+     */
+    private void agendarAck(EstadoRemetente remetente) {
+        if (modoDifusao == ModoDifusao.FOFOCA) {
+            return; // Sem confirmações: o remetente não guarda estado por receptor
+        }
+        remetente.registrarAck(remetente.getUltimaSequencia());
+        agendarEnvioAcks();
+    }
+
+    private void agendarEnvioAcks() {
+        synchronized (travaAcks) {
+            if (envioAcksAgendado == null) {
+                // A roda só dispara: o envio (chamadas remotas) roda no executor
+                envioAcksAgendado = roda.agendar(atrasoAckMs, 
+                    () -> executor.execute(this::enviarAcksPendentes));
+            }
+        }
+    }
+
+    private void enviarAcksPendentes() {
+        synchronized (travaAcks) {
+            envioAcksAgendado = null;
+        }
+        for (EstadoRemetente remetente : remetentes) {
+            if (remetente == null) {
+                continue;
+            }
+            int ateSeq = remetente.retirarAck();
+            if (ateSeq == 0) {
+                continue; // Nada pendente ou já seguiu de carona em um lote
+            }
+            String senderId = remetente.getIdNo();
+            if (modoDifusao != ModoDifusao.DIRETO && obterCanal(senderId) == null) {
+                continue; // Remetente distante: confirmar exigiria uma conexão fora da árvore
+            }
+            try {
+                NoInterface sender = obterNo(senderId);
+                gerenciadorEventos.notificarAckCumulativoEnviado(idNo, senderId, ateSeq);
+                sender.ackCumulativo(idNo, ateSeq, creditoAnunciado());
+            } catch (Exception e) {
+                transporte.invalidar(senderId);
+                GerenciadorLog.getInstancia().registrar(idNo, 
+                    "Falha ao enviar ACK para " + senderId);
+            }
+        }
+    }
+
+    /**
+     * Retira o ACK pendente para o vizinho, para que siga de carona em um lote
+     * @return maior sequência a confirmar, ou 0 se não há ACK pendente
+     */
+    public int retirarAckPendente(int indiceVizinho) {
+        EstadoRemetente[] atuais = remetentes;
+        if (indiceVizinho >= atuais.length || atuais[indiceVizinho] == null) {
+            return 0;
+        }
+        int ateSeq = atuais[indiceVizinho].retirarAck();
+        if (ateSeq > 0) {
+            gerenciadorEventos.notificarAckCumulativoEnviado(idNo, atuais[indiceVizinho].getIdNo(), ateSeq);
+        }
+        return ateSeq;
+    }
+
+    // ACK retirado para um lote que não chegou: volta a ficar pendente (vale o maior cumulativo)
+    public void devolverAckPendente(int indiceVizinho, int ateSeq) {
+        EstadoRemetente[] atuais = remetentes;
+        if (ateSeq <= 0 || indiceVizinho >= atuais.length || atuais[indiceVizinho] == null) {
             return;
+        }
+        atuais[indiceVizinho].registrarAck(ateSeq);
+        agendarEnvioAcks();
+    }
 
-        int nextExpected = ultimaSequencia.getOrDefault(senderId, -1) + 1;
+    @Override
+    public void handleNACK(String senderId, int lastReceivedSeq) throws RemoteException {
+        // NACK sem lacunas: tudo após lastReceivedSeq está faltando
+        handleNACK(senderId, lastReceivedSeq, 
+            new int[] { lastReceivedSeq + 1, contadorSequencia.get() }, 0);
+    }
 
-        while (true) {
-            Mensagem msg = mensagens.get(nextExpected);
-            if (msg == null)
-                break;
+    @Override
+    public void handleNACK(String senderId, int lastReceivedSeq, int[] lacunas, int credito) throws RemoteException {
+        registrarContato(senderId);
+        GerenciadorLog.getInstancia().registrar(idNo, 
+            "Recebido NACK de " + senderId + ", última seq recebida: " + lastReceivedSeq + 
+            ", faixas ausentes: " + lacunas.length / 2);
 
-            if (!mensagensEntregues.get(senderId).contains(msg.getUniqueId())) {
-                filaMensagens.add(msg);
-                ultimaSequencia.put(senderId, nextExpected);
-                enviarACK(senderId, 0);
+        // O NACK também confirma tudo até lastReceivedSeq e traz os créditos do receptor
+        CanalVizinho canal = obterCanal(senderId);
+        if (canal != null) {
+            canal.confirmarAte(lastReceivedSeq);
+            canal.atualizarCredito(lastReceivedSeq, credito);
+            liberarPendentesConfirmados();
+            creditosAtualizados();
+        }
+
+        // Reenvia só as lacunas, lidas por sequência do buffer ou do log de envio
+        List<Mensagem> faltantes = new ArrayList<>();
+        for (int i = 0; i + 1 < lacunas.length; i += 2) {
+            faltantes.addAll(obterPendentes(lacunas[i], lacunas[i + 1]));
+        }
+        if (canal != null) {
+            // Lacuna em mensagem já enviada: perda no enlace, a janela dele diminui
+            if (lacunas.length > 0 && canal.jaEnviou(lacunas[0])) {
+                canal.reduzirJanela(lacunas[0]);
             }
+            // O que o canal ainda não enviou sairá na ordem normal; no repasse a mensagem pode
+            // nunca passar por este canal (chega pela árvore), então tudo é reenviado
+            if (modoDifusao == ModoDifusao.DIRETO) {
+                faltantes.removeIf(msg -> !canal.jaEnviou(msg.getSequenceNumber()));
+            }
+            GerenciadorLog.getInstancia().registrar(idNo, 
+                "Reenviando " + faltantes.size() + " mensagem(ns) para " + senderId);
+            canal.reenviar(faltantes);
+            return;
+        }
+        for (Mensagem msg : faltantes) {
+            try {
+                GerenciadorLog.getInstancia().registrar(idNo, 
+                    "Reenviando mensagem [" + msg.getSequenceNumber() + "] para " + senderId);
+                obterNo(senderId).receive(msg);
+            } catch (Exception e) {
+                transporte.invalidar(senderId);
+                GerenciadorLog.getInstancia().registrar(idNo, 
+                    "Falha crítica ao reenviar mensagem para " + senderId);
+            }
+        }
+    }
 
-            mensagens.remove(nextExpected);
-            nextExpected++;
+    // NACK de um vizinho de baixo na árvore: reenvia o que ainda estiver guardado do repasse
+    @Override
+    public void nackRepasse(String solicitanteId, String origemId, int[] lacunas) throws RemoteException {
+        registrarContato(solicitanteId);
+        CanalVizinho canal = obterCanal(solicitanteId);
+        if (canal == null) {
+            return;
+        }
+        int indiceOrigem = DicionarioNos.getInstancia().indice(origemId);
+        List<Mensagem> faltantes = new ArrayList<>();
+        for (int i = 0; i + 1 < lacunas.length; i += 2) {
+            faltantes.addAll(guardadas(indiceOrigem, lacunas[i], lacunas[i + 1]));
+        }
+        GerenciadorLog.getInstancia().registrar(idNo, 
+            "Reparando " + faltantes.size() + " mensagem(ns) de " + origemId + " para " + solicitanteId);
+        canal.reenviar(faltantes);
+    }
+
+    // Mensagens guardadas de um remetente para reparos: o histórico próprio ou as últimas repassadas
+    private List<Mensagem> guardadas(int indiceRemetente, int de, int ate) {
+        if (indiceRemetente == DicionarioNos.getInstancia().indice(idNo)) {
+            return obterPendentes(de, ate);
+        }
+        return estadoRemetente(indiceRemetente).getRecentes().obterIntervalo(de, ate);
+    }
+
+    // Próprias em [de, ate]: as recentes do heap, as anteriores do log de envio (se houver)
+    private List<Mensagem> obterPendentes(int de, int ate) {
+        LogEnvio log = logEnvio;
+        int inicioCache = mensagensPendentes.getInicio();
+        if (log == null || de >= inicioCache) {
+            return mensagensPendentes.obterIntervalo(de, ate);
+        }
+        List<Mensagem> pendentes = log.obterIntervalo(de, Math.min(ate, inicioCache - 1));
+        if (ate >= inicioCache) {
+            pendentes.addAll(mensagensPendentes.obterIntervalo(inicioCache, ate));
+        }
+        return pendentes;
+    }
+
+    private boolean isPendente(int seq) {
+        if (mensagensPendentes.contem(seq)) {
+            return true;
+        }
+        LogEnvio log = logEnvio;
+        return log != null && seq < mensagensPendentes.getInicio() && log.contem(seq);
+    }
+
+    // Maior sequência do remetente recebida em ordem (a própria, para este nó)
+    private int ultimaConhecida(int indiceRemetente) {
+        if (indiceRemetente == DicionarioNos.getInstancia().indice(idNo)) {
+            return contadorSequencia.get();
+        }
+        return estadoRemetente(indiceRemetente).getUltimaSequencia();
+    }
+
+    private void agendarAntiEntropia() {
+        synchronized (travaAntiEntropia) {
+            if (antiEntropiaAgendada == null) {
+                antiEntropiaAgendada = roda.agendar(intervaloAntiEntropiaMs, 
+                    () -> executor.execute(this::trocarResumos));
+            }
+        }
+    }
+
+    // Rodada de anti-entropia: troca resumos com um vizinho sorteado enquanto o modo for fofoca
+    private void trocarResumos() {
+        synchronized (travaAntiEntropia) {
+            antiEntropiaAgendada = null;
+        }
+        if (modoDifusao != ModoDifusao.FOFOCA || !"ATIVO".equals(estado.getNomeEstado())) {
+            return;
+        }
+        List<CanalVizinho> atuais = new ArrayList<>(canais.values());
+        if (!atuais.isEmpty()) {
+            enviarResumo(atuais.get(ThreadLocalRandom.current().nextInt(atuais.size())), true);
         }
+        agendarAntiEntropia();
     }
 
-    private void enviarACK(String senderId, int lastReceivedSeq) {
+    // Resumo compacto: para cada remetente conhecido, até onde as mensagens chegaram em ordem
+    private void enviarResumo(CanalVizinho canal, boolean responder) {
+        EstadoRemetente[] atuais = remetentes;
+        String[] ids = new String[atuais.length + 1];
+        int[] ateSeq = new int[atuais.length + 1];
+        int quantidade = montarResumo(atuais, ids, ateSeq);
         try {
-            NoInterface sender = RegistryManager.getInstancia().buscarNo(senderId);
-            
-            // Notifica observadores
-            gerenciadorEventos.notificarNackEnviado(idNo, senderId, lastReceivedSeq);
-            
-            sender.handleNACK(idNo, lastReceivedSeq);
-        } catch (Exception e) {
+            canal.getVizinho().resumoFofoca(idNo, Arrays.copyOf(ids, quantidade), 
+                Arrays.copyOf(ateSeq, quantidade), responder);
+        } catch (RemoteException e) {
             GerenciadorLog.getInstancia().registrar(idNo, 
-                "Falha ao enviar NACK para " + senderId);
+                "Falha ao enviar resumo para " + canal.getIdVizinho());
         }
     }
 
+    // Preenche ids/ateSeq (com espaço para atuais.length + 1) e retorna quantos remetentes entraram
+    private int montarResumo(EstadoRemetente[] atuais, String[] ids, int[] ateSeq) {
+        int quantidade = 0;
+        if (contadorSequencia.get() > 0) {
+            ids[quantidade] = idNo;
+            ateSeq[quantidade++] = contadorSequencia.get();
+        }
+        for (EstadoRemetente remetente : atuais) {
+            if (remetente != null && remetente.getUltimaSequencia() > 0 && !remetente.getIdNo().equals(idNo)) {
+                ids[quantidade] = remetente.getIdNo();
+                ateSeq[quantidade++] = remetente.getUltimaSequencia();
+            }
+        }
+        return quantidade;
+    }
+
+    /**
+     * Anti-entropia: compara o resumo do vizinho com o estado daqui, envia a ele só as faixas
+     * que faltam e, se ele tiver algo que falta aqui, responde com o próprio resumo (ele então envia)
+     */
     @Override
-    public void handleNACK(String senderId, int lastReceivedSeq) throws RemoteException {
-        GerenciadorLog.getInstancia().registrar(idNo, 
-            "Recebido NACK de " + senderId + ", última seq recebida: " + lastReceivedSeq);
+    public void resumoFofoca(String idVizinho, String[] remetentesIds, int[] ateSeq, boolean responder) 
+            throws RemoteException {
+        registrarContato(idVizinho);
+        CanalVizinho canal = obterCanal(idVizinho);
+        if (canal == null) {
+            return;
+        }
+        DicionarioNos dicionario = DicionarioNos.getInstancia();
+        BitSet listados = new BitSet();
+        List<Mensagem> faltantes = new ArrayList<>();
+        boolean faltaAqui = false;
+        for (int i = 0; i < remetentesIds.length; i++) {
+            int indice = dicionario.indice(remetentesIds[i]);
+            listados.set(indice);
+            int aqui = ultimaConhecida(indice);
+            if (aqui > ateSeq[i]) {
+                faltantes.addAll(guardadas(indice, ateSeq[i] + 1, aqui));
+            } else if (aqui < ateSeq[i]) {
+                faltaAqui = true;
+            }
+        }
+        // Remetentes que o vizinho ainda nem conhece
+        int indiceProprio = dicionario.indice(idNo);
+        if (!listados.get(indiceProprio) && contadorSequencia.get() > 0) {
+            faltantes.addAll(obterPendentes(1, contadorSequencia.get()));
+        }
+        for (EstadoRemetente remetente : remetentes) {
+            if (remetente != null && !listados.get(remetente.getIndice()) && remetente.getIndice() != indiceProprio
+                    && remetente.getUltimaSequencia() > 0) {
+                faltantes.addAll(remetente.getRecentes().obterIntervalo(1, remetente.getUltimaSequencia()));
+            }
+        }
 
-        // Enviar todas as mensagens pendentes a partir da sequência esperada
-        for (Mensagem msg : mensagensPendentes.values()) {
-            if (msg.getSenderId().equals(idNo) && msg.getSequenceNumber() > lastReceivedSeq) {
+        if (!faltantes.isEmpty()) {
+            GerenciadorLog.getInstancia().registrar(idNo, 
+                "Anti-entropia: enviando " + faltantes.size() + " mensagem(ns) para " + idVizinho);
+            canal.reenviar(faltantes);
+        }
+        if (responder && faltaAqui) {
+            try {
+                executor.execute(() -> enviarResumo(canal, false));
+            } catch (RejectedExecutionException e) {
+                // Nó encerrando
+            }
+        }
+    }
+
+    @Override
+    public void anunciarArvore(String idVizinho, String raiz, int distancia, String pai, long versao) 
+            throws RemoteException {
+        registrarContato(idVizinho);
+        CanalVizinho canal = obterCanal(idVizinho);
+        if (canal == null) {
+            return; // Anúncio atrasado de um vizinho que já saiu (ou que ainda não abriu o canal)
+        }
+        // O primeiro anúncio é respondido: o nosso pode ter chegado antes do canal de volta existir
+        boolean primeiro = !arvore.conhece(idVizinho);
+        if (arvore.registrarAnuncio(idVizinho, raiz, distancia, pai, versao)) {
+            divulgarArvore();
+        } else if (primeiro) {
+            divulgarArvore(canal);
+        }
+    }
+
+    // Posição deste nó mudou: todos os vizinhos precisam saber
+    private void divulgarArvore() {
+        GerenciadorLog.getInstancia().registrar(idNo, "Árvore de repasse: " + arvore.resumo());
+        for (CanalVizinho canal : canais.values()) {
+            divulgarArvore(canal);
+        }
+    }
+
+    // Envio assíncrono; anúncios que chegarem fora de ordem são descartados pela versão
+    private void divulgarArvore(CanalVizinho canal) {
+        String raiz;
+        int distancia;
+        String pai;
+        long versao;
+        synchronized (arvore) {
+            raiz = arvore.getRaiz();
+            distancia = arvore.getDistancia();
+            pai = arvore.getPai();
+            versao = arvore.getVersao();
+        }
+        try {
+            pings.execute(() -> {
                 try {
-                    NoInterface destinatario = obterNo(senderId);
-                    GerenciadorLog.getInstancia().registrar(idNo, 
-                        "Reenviando mensagem [" + msg.getSequenceNumber() + "] para " + senderId);
-                    destinatario.receive(msg);
-                } catch (Exception e) {
+                    canal.getVizinho().anunciarArvore(idNo, raiz, distancia, pai, versao);
+                } catch (RemoteException e) {
                     GerenciadorLog.getInstancia().registrar(idNo, 
-                        "Falha crítica ao reenviar mensagem para " + senderId);
+                        "Falha ao anunciar árvore para " + canal.getIdVizinho());
                 }
-            }
+            });
+        } catch (RejectedExecutionException e) {
+            // Nó encerrando
         }
     }
 
     private void deliver(Mensagem msg) {
-        String idMsg = msg.getUniqueId();
-        String sender = msg.getSenderId();
-
-        mensagensEntregues.computeIfAbsent(sender, k -> ConcurrentHashMap.newKeySet())
-                .add(idMsg);
-
+        EstadoRemetente remetente = estadoRemetente(msg.getIndiceRemetente());
+        remetente.getEntregues().marcar(msg.getSequenceNumber());
+        remetente.setEntregueAte(msg.getSequenceNumber());
+        entregaCausal.registrarEntregue(msg.getIndiceRemetente(), msg.getSequenceNumber());
         gerenciadorEventos.notificarMensagemEntregue(idNo, msg);
     }
 
+    // Thread de entrega: única consumidora do anel, drena e entrega em lote
     private void processarMensagens() {
-        while (estado.getNomeEstado().contains("ATIVO")) {
+        List<Mensagem> lote = new ArrayList<>(TAMANHO_LOTE_ENTREGA);
+        List<Mensagem> prontas = new ArrayList<>(TAMANHO_LOTE_ENTREGA);
+        while (!"INATIVO".equals(estado.getNomeEstado())) { // Em falha ou recuperando também entrega
             try {
-                Mensagem msg = filaMensagens.take(); // Ordena por timestamp
-                deliver(msg);
+                filaMensagens.drenar(lote, TAMANHO_LOTE_ENTREGA);
+                OrdemEntrega ordem = ordemEntrega;
+                if (ordem == OrdemEntrega.TOTAL || entregaTotal.getQuantidadeAguardando() > 0) {
+                    entregarEmOrdemTotal(lote, prontas);
+                } else if (ordem == OrdemEntrega.CAUSAL || entregaCausal.getQuantidadeAguardando() > 0) {
+                    entregarEmOrdemCausal(lote, prontas);
+                } else {
+                    for (Mensagem msg : lote) {
+                        deliver(msg);
+                    }
+                }
+                lote.clear();
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 GerenciadorLog.getInstancia().registrar(idNo, 
                     "Processador de mensagens interrompido");
+                return;
             }
         }
     }
 
-    private void enviarHeartbeats() {
-        while (estado.getNomeEstado().contains("ATIVO")) {
+    /**
+     * Ordem total: as mensagens ficam retidas até um lote do sequenciador posicioná-las
+     * Os lotes chegam pelo mesmo caminho FIFO das mensagens do sequenciador
+     */
+    private void entregarEmOrdemTotal(List<Mensagem> lote, List<Mensagem> prontas) {
+        boolean fecharLote = false;
+        for (Mensagem msg : lote) {
+            boolean loteOrdem = MensagemFactory.isMensagemOrdem(msg);
+            entregaTotal.receber(msg, !loteOrdem);
+            if (loteOrdem) {
+                List<Sequenciador.Trecho> trechos = Sequenciador.decodificar(msg);
+                long termo = Sequenciador.termo(msg);
+                if (entregaTotal.receberOrdem(termo, trechos)) {
+                    sequenciador.registrarAtribuidos(termo, trechos);
+                } else {
+                    GerenciadorLog.getInstancia().registrar(idNo, "Lote de ordem de " + msg.getSenderId() 
+                        + " recusado: mandato " + termo + " já substituído");
+                }
+                if (!msg.getSenderId().equals(idNo)) {
+                    estadoRemetente(msg.getIndiceRemetente()).getEntregues().marcar(msg.getSequenceNumber());
+                }
+            } else {
+                fecharLote |= sequenciador.registrar(msg.getIndiceRemetente(), msg.getSequenceNumber());
+            }
+        }
+        if (fecharLote) {
+            agendarLoteOrdem();
+        }
+
+        if (ordemEntrega == OrdemEntrega.TOTAL) {
+            entregaTotal.liberar(prontas);
+        } else {
+            entregaTotal.liberarTudo(prontas); // Modo desligado: o que estava retido sai
+        }
+        for (Mensagem msg : prontas) {
+            deliver(msg);
+        }
+        prontas.clear();
+    }
+
+    // Ordem causal: cada mensagem espera só as próprias dependências, sem passar por um sequenciador
+    private void entregarEmOrdemCausal(List<Mensagem> lote, List<Mensagem> prontas) {
+        for (Mensagem msg : lote) {
+            entregaCausal.receber(msg);
+        }
+        if (ordemEntrega == OrdemEntrega.CAUSAL) {
+            entregaCausal.liberar(prontas);
+        } else {
+            entregaCausal.liberarTudo(prontas);
+        }
+        for (Mensagem msg : prontas) {
+            deliver(msg);
+        }
+        prontas.clear();
+    }
+
+    // Janela de lote: tudo o que chegar até ela fechar sai em um único lote de ordem
+    private void agendarLoteOrdem() {
+        synchronized (travaOrdem) {
+            if (loteOrdemAgendado == null) {
+                loteOrdemAgendado = roda.agendar(janelaOrdemMs, 
+                    () -> executor.execute(this::emitirLoteOrdem));
+            }
+        }
+    }
+
+    // Sequenciador: fecha o lote e o difunde como um broadcast comum; aqui ele é aplicado pela entrega
+    private void emitirLoteOrdem() {
+        synchronized (travaOrdem) {
+            loteOrdemAgendado = null;
+        }
+        if (!"ATIVO".equals(estado.getNomeEstado())) {
+            return;
+        }
+        List<Sequenciador.Trecho> trechos = sequenciador.fechar();
+        if (trechos.isEmpty()) {
+            return;
+        }
+        Mensagem lote;
+        ReservaEnvio reserva;
+        synchronized (travaCreditos) { // Mesma reserva de sequência dos broadcasts
+            lote = MensagemFactory.criarMensagemOrdem(idNo, contadorSequencia.get() + 1, 
+                Sequenciador.codificar(termoSequenciador, trechos));
             try {
-                Thread.sleep(2000);
-                for (NoInterface vizinho : new ArrayList<>(vizinhos)) { // Cópia para evitar concorrência
-                    try {
-                        long startTime = System.currentTimeMillis();
-                        vizinho.heartbeat();
-                        long rtt = System.currentTimeMillis() - startTime;
+                reserva = reservar(Collections.singletonList(lote));
+            } catch (RemoteException e) {
+                GerenciadorLog.getInstancia().registrar(idNo, 
+                    "Erro ao difundir lote de ordem: " + e.getMessage());
+                return; // Sequência não reservada: o lote não existe para ninguém
+            }
+        }
+        try {
+            despachar(reserva);
+        } catch (RemoteException e) {
+            GerenciadorLog.getInstancia().registrar(idNo, 
+                "Erro ao difundir lote de ordem: " + e.getMessage());
+        }
+        if (!enfileirarEntrega(lote)) {
+            entregasAdiadas.add(lote); // Os vizinhos já receberam: a entrega local sai no reinício
+        }
+    }
 
-                        // Ajustar timeout dinamicamente baseado no RTT
-                        if (rtt > ACK_TIMEOUT_MS) {
-                            ACK_TIMEOUT_MS = rtt * 2; // Timeout = 2x RTT
-                        }
-                    } catch (RemoteException e) {
+    // Consulta o RegistryManager e, se não houver sequenciador vivo, se candidata
+    private void verificarSequenciador() {
+        try {
+            RegistryManager registro = RegistryManager.getInstancia();
+            String atual = registro.buscarSequenciador();
+            if (atual == null) {
+                atual = registro.elegerSequenciador(idNo, sequenciador.proximoTermo());
+            }
+            atualizarSequenciador(atual, registro.termoDoMandato(idNo));
+        } catch (RemoteException e) {
+            GerenciadorLog.getInstancia().registrar(idNo, 
+                "Registry inacessível para eleger o sequenciador");
+        }
+    }
+
+    // termo: mandato deste nó, que vale se ele for o novo sequenciador
+    private void atualizarSequenciador(String novo, long termo) {
+        String anterior = sequenciadorAtual;
+        sequenciadorAtual = novo;
+        if (Objects.equals(anterior, novo)) {
+            return;
+        }
+        GerenciadorLog.getInstancia().registrar(idNo, "Sequenciador da ordem total: " + novo);
+        boolean assumiu = idNo.equals(novo);
+        termoSequenciador = assumiu ? termo : 0;
+        sequenciador.setAtivo(assumiu);
+        if (assumiu) {
+            agendarLoteOrdem(); // Ordena o que o sequenciador anterior deixou pendente
+        }
+    }
+
+    // Este nó deixa de ser o sequenciador (desligamento ou fim da ordem total): libera o mandato
+    private void destituirSequenciador(String idSuspeito) {
+        try {
+            RegistryManager.getInstancia().destituirSequenciador(idSuspeito);
+        } catch (RemoteException e) {
+            GerenciadorLog.getInstancia().registrar(idNo, 
+                "Registry inacessível para destituir o sequenciador " + idSuspeito);
+        }
+        if (idSuspeito.equals(sequenciadorAtual)) {
+            atualizarSequenciador(null, 0);
+        }
+    }
+
+    /**
+     * Chamado pelas faixas: a ordem de publicação preserva FIFO por remetente
+     * @return false se interrompido (nó encerrando) antes de publicar; quem chamou não deve
+     *         dar a mensagem por aceita nem confirmá-la
+     */
+    private boolean enfileirarEntrega(Mensagem msg) {
+        try {
+            filaMensagens.publicar(msg);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            GerenciadorLog.getInstancia().registrar(idNo, 
+                "Entrega de " + msg.getSenderId() + "#" + msg.getSequenceNumber() + " interrompida");
+            return false;
+        }
+    }
+
+    // Republica o que ficou de fora no encerramento, já com a thread de entrega rodando
+    private void publicarAdiadas() {
+        Mensagem msg;
+        while ((msg = entregasAdiadas.peek()) != null) {
+            if (!enfileirarEntrega(msg)) {
+                return;
+            }
+            entregasAdiadas.poll();
+        }
+    }
+
+    /**
+     * Laço de detecção de falhas: a cada intervalo, pinga os enlaces ociosos (os ocupados já
+     * servem de heartbeat) e avalia o phi de cada vizinho
+     */
+    private void monitorarVizinhos() {
+        while (!"INATIVO".equals(estado.getNomeEstado())) {
+            try {
+                Thread.sleep(intervaloHeartbeatMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            long agora = System.nanoTime();
+            long intervaloNanos = TimeUnit.MILLISECONDS.toNanos(intervaloHeartbeatMs);
+            for (CanalVizinho canal : canais.values()) {
+                if (agora - canal.getUltimoEnvioNanos() >= intervaloNanos) {
+                    canal.enviarPing(pings);
+                }
+
+                double phi = estadoRemetente(canal.getIndiceVizinho()).getDetector().phi(agora);
+                if (phi >= limiarPhi) {
+                    if (canal.marcarSuspeito()) {
+                        tratarVizinhoSuspeito(canal, phi);
+                    } else if (canal.tempoSuspeitoNanos(agora) >= TimeUnit.MILLISECONDS.toNanos(prazoSuspeitaMs)) {
+                        // Suspeita que não passa: sem isso a fila e os pendentes dele crescem sem limite
                         GerenciadorLog.getInstancia().registrar(idNo, 
-                            "Falha no heartbeat para " + vizinho);
-                        tratarFalhaVizinho(vizinho);
+                            "Vizinho " + canal.getIdVizinho() + " suspeito há mais de " + prazoSuspeitaMs 
+                            + " ms, removendo");
+                        tratarFalhaVizinho(canal.getVizinho());
                     }
+                } else if (canal.retomarRetransmissoes()) {
+                    // Responde, mas o enlace desistiu de retransmitir: nova rodada com o que falta confirmar
+                    GerenciadorLog.getInstancia().registrar(idNo, 
+                        "Retomando retransmissões para " + canal.getIdVizinho());
+                    reenviarPendentes(canal, canal.getConfirmadoAte() + 1);
+                } else if (canal.limparSuspeita()) {
+                    tratarVizinhoDeVolta(canal);
                 }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
             }
+            if (modoDifusao == ModoDifusao.ARVORE) {
+                verificarLacunasRepasse(agora);
+            }
+            if (ordemEntrega == OrdemEntrega.TOTAL) {
+                verificarSequenciador();
+            }
+            if (atualizacao != null) {
+                verificarAtualizacao();
+            }
+        }
+    }
+
+    /**
+     * O remetente original só tem temporizadores para as próprias arestas; quem recebe por repasse
+     * pede de novo o que falta: as lacunas conhecidas e, quando o remetente para, o que vier
+     * depois da maior sequência vista. Cobre NACKs e reparos perdidos e o fim perdido de uma rajada
+     */
+    private void verificarLacunasRepasse(long agora) {
+        long intervaloNanos = TimeUnit.MILLISECONDS.toNanos(intervaloHeartbeatMs);
+        for (EstadoRemetente remetente : remetentes) {
+            if (remetente == null || remetente.getEnlaceRepasse() == null 
+                    || remetente.getEnlaceRepasse().equals(remetente.getIdNo())) {
+                continue; // Recebe direto do remetente, que retransmite sozinho
+            }
+            long parado = agora - remetente.getUltimoRepasseNanos();
+            BufferSequencial foraDeOrdem = remetente.getForaDeOrdem();
+            boolean verificarFim = parado >= intervaloNanos && parado < intervaloNanos * CICLOS_VERIFICACAO_REPASSE;
+            if (foraDeOrdem.tamanho() == 0 && !verificarFim) {
+                continue;
+            }
+            int ultimaSeq = remetente.getUltimaSequencia();
+            int[] lacunas = foraDeOrdem.lacunas(ultimaSeq);
+            if (verificarFim) {
+                lacunas = Arrays.copyOf(lacunas, lacunas.length + 2);
+                lacunas[lacunas.length - 2] = Math.max(ultimaSeq, foraDeOrdem.getFim()) + 1;
+                lacunas[lacunas.length - 1] = Integer.MAX_VALUE;
+            }
+            enviarNACK(remetente, ultimaSeq, lacunas);
+        }
+    }
+
+    /**
+     * Suspeita não é veredito: o vizinho e o canal continuam, só deixam de travar os créditos
+     * e a recuperação. Um pico de atraso que passa não corta o enlace; só a suspeita que dura
+     * além de prazoSuspeitaMs remove o vizinho. O sequenciador não é destituído por suspeita de
+     * um nó: o mandato só vaga quando expira (o dono morre) ou é liberado por ele
+     */
+    private void tratarVizinhoSuspeito(CanalVizinho canal, double phi) {
+        String idVizinho = canal.getIdVizinho();
+        gerenciadorEventos.notificarVizinhoSuspeito(idNo, idVizinho, phi);
+        AtualizacaoRecuperacao atual = atualizacao;
+        if (atual != null) {
+            atual.descartarVizinho(idVizinho);
         }
+        creditosAtualizados(); // Quem esperava os créditos dele segue com os demais
+        if (arvore.removerVizinho(idVizinho)) {
+            divulgarArvore();
+        }
+    }
+
+    // Contato de novo depois da suspeita: o anúncio devolve o vizinho à árvore dele e desta
+    private void tratarVizinhoDeVolta(CanalVizinho canal) {
+        GerenciadorLog.getInstancia().registrar(idNo, 
+            "Vizinho " + canal.getIdVizinho() + " voltou a responder");
+        divulgarArvore(canal);
     }
 
-    private void tratarFalhaVizinho(NoInterface vizinhoFalho) {
+    // Qualquer tráfego vindo do nó alimenta o detector de falhas dele
+    private void registrarContato(int indiceRemetente) {
+        estadoRemetente(indiceRemetente).getDetector().registrarChegada(System.nanoTime());
+    }
+
+    private void registrarContato(String idRemetente) {
+        registrarContato(DicionarioNos.getInstancia().indice(idRemetente));
+    }
+
+    // Chamado pelo transporte quando a conexão com o vizinho se perde (no NIO, a reconexão é outro vizinho)
+    public void tratarFalhaVizinho(NoInterface vizinhoFalho) {
         // Notifica observadores
         gerenciadorEventos.notificarFalhaVizinho(idNo, "Falha de comunicação com vizinho");
         vizinhos.remove(vizinhoFalho);
+        CanalVizinho canal = encerrarCanal(vizinhoFalho);
+        if (canal != null) {
+            transporte.invalidar(canal.getIdVizinho());
+            liberarPendentesConfirmados(); // Libera o que só ele não tinha confirmado
+        }
     }
 
+    // ACK de um único vizinho: a mensagem só é liberada quando todos confirmam (ACKs cumulativos)
     @Override
     public void ack(Mensagem msg) throws RemoteException {
         gerenciadorEventos.notificarAckEnviado(idNo, msg);
-        mensagensPendentes.remove(msg.getUniqueId());
     }
 
-    private void verificarACK(Mensagem msg, int tentativa) {
-        if (!estado.getNomeEstado().contains("ATIVO") || tentativa >= MAX_RETRIES) {
-            GerenciadorLog.getInstancia().registrar(idNo, 
-                "Falha crítica: não foi possível entregar mensagem após " + MAX_RETRIES + " tentativas");
-            mensagensPendentes.remove(msg.getUniqueId());
+    @Override
+    public void ackCumulativo(String receptorId, int ateSeq, int credito) throws RemoteException {
+        registrarContato(receptorId);
+        CanalVizinho canal = obterCanal(receptorId);
+        if (canal == null) {
+            return;
+        }
+        canal.confirmarAte(ateSeq);
+        canal.atualizarCredito(ateSeq, credito);
+        liberarPendentesConfirmados();
+        creditosAtualizados();
+    }
+
+    // Libera em bloco as mensagens já confirmadas por todos os vizinhos
+    private void liberarPendentesConfirmados() {
+        int confirmadoPorTodos = Integer.MAX_VALUE;
+        for (CanalVizinho canal : canais.values()) {
+            confirmadoPorTodos = Math.min(confirmadoPorTodos, canal.getConfirmadoAte());
+        }
+        if (confirmadoPorTodos == Integer.MAX_VALUE) {
+            return;
+        }
+        // Corta o buffer pelo início: custo proporcional ao que foi liberado
+        mensagensPendentes.liberarAte(confirmadoPorTodos);
+        LogEnvio log = logEnvio;
+        if (log != null) {
+            log.truncarAte(confirmadoPorTodos);
+        }
+    }
+
+
+    // Timer de retransmissão de uma mensagem em um enlace, a cada RTO daquele enlace (thread da roda)
+    void verificarACK(RetransmissaoPendente retransmissao) {
+        Mensagem msg = retransmissao.getMensagem();
+        CanalVizinho canal = retransmissao.getCanal();
+        int tentativa = retransmissao.getTentativa();
+        int seq = msg.getSequenceNumber();
+        if (canais.get(canal.getVizinho()) != canal || canal.getConfirmadoAte() >= seq 
+                || !isPendente(seq)) {
+            return; // Vizinho saiu, confirmou ou a mensagem já foi liberada
+        }
+        if ("EM_FALHA".equals(estado.getNomeEstado())) {
+            return; // Continua pendente: a recuperação reenvia tudo o que o vizinho não confirmou
+        }
+
+        if ("INATIVO".equals(estado.getNomeEstado())) {
             return;
         }
-
-        if (mensagensPendentes.containsKey(msg.getUniqueId())) {
-            // Notifica observadores sobre reenvio
-            gerenciadorEventos.notificarMensagemReeviada(idNo, msg, tentativa + 1);
-
-            for (NoInterface vizinho : vizinhos) {
+        if (tentativa >= MAX_RETRIES) {
+            // Só este enlace desiste: a mensagem continua guardada para os outros vizinhos e para
+            // os NACKs, e é liberada quando todos os canais confirmarem ou fecharem
+            if (canal.desistirRetransmissoes()) {
+                GerenciadorLog.getInstancia().registrar(idNo, "Enlace com " + canal.getIdVizinho() 
+                    + ": sem confirmação da seq " + seq + " após " + MAX_RETRIES + " tentativas");
+            }
+            if (canal.marcarSuspeito()) {
+                // Roda na thread da roda: o tratamento (registry, travaCreditos) vai para o executor
+                double phi = estadoRemetente(canal.getIndiceVizinho()).getDetector().phi(System.nanoTime());
                 try {
-                    if (!mensagensEntregues.getOrDefault(vizinho.toString(), Collections.emptySet())
-                            .contains(msg.getUniqueId())) {
-                        vizinho.receive(msg);
-                    }
-                } catch (RemoteException e) {
-                    GerenciadorLog.getInstancia().registrar(idNo, "Falha no reenvio para " + vizinho);
+                    executor.execute(() -> tratarVizinhoSuspeito(canal, phi));
+                } catch (RejectedExecutionException e) {
+                    // Nó encerrando: não há mais o que avisar
                 }
             }
-
-            long novoTimeout = ACK_TIMEOUT_MS * (1 << tentativa);
-            executor.schedule(() -> verificarACK(msg, tentativa + 1), novoTimeout, TimeUnit.MILLISECONDS);
+            return;
         }
+
+        gerenciadorEventos.notificarMensagemReeviada(idNo, msg, tentativa + 1);
+        canal.registrarTimeout(seq);
+        canal.reenviar(Collections.singletonList(msg));
+        retransmissao.proximaTentativa();
+        retransmissao.agendar();
     }
     
     // NOVO: Método para adicionar observadores personalizados
@@ -312,19 +1594,39 @@ public class No extends UnicastRemoteObject implements NoInterface {
         estado.processarHeartbeat(this);
     }
 
+    @Override
+    public void heartbeat(String remetenteId) throws RemoteException {
+        registrarContato(remetenteId);
+        estado.processarHeartbeat(this);
+    }
+
     public void desligar() {
         estado.desligar(this);
     }
 
     // NOVO: Chamado pelo estado para finalizar recursos
     public void finalizarRecursos() {
+        if (idNo.equals(sequenciadorAtual)) {
+            destituirSequenciador(idNo);
+        }
+        LogEnvio log = logEnvio;
+        if (log != null) {
+            log.forcar(); // Na política INTERVALO, o último intervalo também chega ao disco
+        }
+        if (arquivoCheckpoint != null) {
+            gravarCheckpoint(); // Desligamento ordenado: o reinício continua exatamente daqui
+        }
         executor.shutdownNow();
-        try {
-            RegistryManager.getInstancia().removerNo(idNo);
-        } catch (Exception e) {
-            GerenciadorLog.getInstancia().registrar(idNo, 
-                "Erro ao desregistrar nó: " + e.getMessage());
+        roda.encerrar();
+        pings.shutdownNow();
+        for (ExecutorService faixa : faixasRecebimento) {
+            faixa.shutdownNow();
         }
+        for (NoInterface vizinho : new ArrayList<>(canais.keySet())) {
+            encerrarCanal(vizinho);
+        }
+        // O NoLocal continua no diretório: os vizinhos desta JVM o guardam e o reencontram ao reativar
+        transporte.encerrar(this);
     }
     
     // NOVO: Chamado pelo estado para inicializar recursos
@@ -332,17 +1634,293 @@ public class No extends UnicastRemoteObject implements NoInterface {
         // Reinicia executor se necessário
         if (executor.isShutdown()) {
             executor = Executors.newScheduledThreadPool(3);
+            faixasRecebimento = criarFaixasRecebimento();
+            roda = criarRoda();
+            // Temporizadores da roda antiga nunca vão disparar
+            synchronized (travaAcks) {
+                envioAcksAgendado = null;
+            }
+            synchronized (travaAntiEntropia) {
+                antiEntropiaAgendada = null;
+            }
+            synchronized (travaOrdem) {
+                loteOrdemAgendado = null;
+            }
+            synchronized (travaCheckpoint) {
+                checkpointAgendado = null;
+            }
+            pings = Executors.newCachedThreadPool();
             executor.submit(this::processarMensagens);
-            executor.submit(this::enviarHeartbeats);
+            executor.submit(this::monitorarVizinhos);
+            if (!entregasAdiadas.isEmpty()) {
+                executor.execute(this::publicarAdiadas);
+            }
+            // Volta ao registry (o transporte saiu dele ao desligar; a exportação e o NoLocal seguem os mesmos)
+            try {
+                publicar();
+            } catch (IOException e) {
+                GerenciadorLog.getInstancia().registrar(idNo, 
+                    "Erro ao republicar nó: " + e.getMessage());
+            }
+        }
+        for (NoInterface vizinho : vizinhos) {
+            abrirCanal(vizinho);
+        }
+        if (modoDifusao == ModoDifusao.FOFOCA) {
+            agendarAntiEntropia();
         }
+        if (arquivoCheckpoint != null) {
+            agendarCheckpoint();
+        }
+    }
+
+    // Torna o nó alcançável pelos vizinhos através do transporte
+    public void publicar() throws IOException {
+        transporte.publicar(this);
+        DiretorioLocal.getInstancia().registrar(this);
+        GerenciadorLog.getInstancia().registrar(idNo, 
+            "Nó publicado via transporte " + transporte.getNome());
+    }
+
+    // Localiza outro nó através do transporte (id no RMI, host:porta no NIO)
+    public NoInterface buscarNo(String destino) throws RemoteException {
+        return transporte.buscarNo(destino);
     }
     
     //  NOVO: Chamado pelo estado para iniciar recuperação
     public void iniciarRecuperacao() {
         GerenciadorLog.getInstancia().registrar(idNo, 
             "Iniciando processo de recuperação...");
-        // Lógica de recuperação (reconectar vizinhos, limpar filas, etc.)
-        mensagensPendentes.clear();
+        // As pendentes continuam guardadas: cada vizinho recebe de novo o que ainda não confirmou
+        for (CanalVizinho canal : canais.values()) {
+            reenviarPendentes(canal, canal.getConfirmadoAte() + 1);
+        }
+        iniciarAtualizacao();
+    }
+
+    /**
+     * Envia aos vizinhos o vetor do que já foi recebido em ordem; cada um responde com uma oferta
+     * e transmite as faixas que faltam. O nó volta a ATIVO quando alcança as ofertas
+     */
+    private void iniciarAtualizacao() {
+        List<CanalVizinho> atuais = new ArrayList<>(canais.values());
+        List<String> idsVizinhos = new ArrayList<>(atuais.size());
+        for (CanalVizinho canal : atuais) {
+            idsVizinhos.add(canal.getIdVizinho());
+        }
+        AtualizacaoRecuperacao nova = new AtualizacaoRecuperacao(idsVizinhos, totalRecebido());
+        synchronized (travaAtualizacao) {
+            atualizacao = nova;
+        }
+
+        EstadoRemetente[] estados = remetentes;
+        String[] ids = new String[estados.length + 1];
+        int[] ateSeq = new int[estados.length + 1];
+        int quantidade = montarResumo(estados, ids, ateSeq);
+        String[] pedidoIds = Arrays.copyOf(ids, quantidade);
+        int[] pedidoAteSeq = Arrays.copyOf(ateSeq, quantidade);
+        GerenciadorLog.getInstancia().registrar(idNo, 
+            "Pedindo atualização a " + atuais.size() + " vizinho(s), " + quantidade + " remetente(s) conhecido(s)");
+        for (CanalVizinho canal : atuais) {
+            try {
+                canal.getVizinho().pedirAtualizacao(idNo, pedidoIds, pedidoAteSeq);
+            } catch (RemoteException e) {
+                nova.descartarVizinho(canal.getIdVizinho());
+                GerenciadorLog.getInstancia().registrar(idNo, 
+                    "Falha ao pedir atualização a " + canal.getIdVizinho());
+            }
+        }
+        verificarAtualizacao();
+    }
+
+    // Alcançou as ofertas (ou parou de avançar): a recuperação termina e o nó volta a ATIVO
+    private void verificarAtualizacao() {
+        AtualizacaoRecuperacao atual = atualizacao;
+        if (atual == null) {
+            return;
+        }
+        if (!"RECUPERANDO".equals(estado.getNomeEstado())) {
+            synchronized (travaAtualizacao) { // Encerrada por fora (ativar ou desligar)
+                if (atualizacao == atual) {
+                    atualizacao = null;
+                }
+            }
+            return;
+        }
+        long recebidas = totalRecebido();
+        boolean alcancada = atual.alcancada(remetentes);
+        if (!alcancada && !atual.estagnada(recebidas, System.nanoTime(), 
+                TimeUnit.MILLISECONDS.toNanos(CICLOS_SEM_PROGRESSO_ATUALIZACAO * intervaloHeartbeatMs))) {
+            return;
+        }
+        synchronized (travaAtualizacao) {
+            if (atualizacao != atual) {
+                return;
+            }
+            atualizacao = null;
+        }
+        GerenciadorLog.getInstancia().registrar(idNo, (alcancada ? "Atualização concluída: " 
+                : "Atualização encerrada sem progresso (o restante fica para os NACKs): ")
+            + (recebidas - atual.getRecebidasInicio()) + " mensagem(ns) em " + atual.getDuracaoMs() + " ms");
+        setEstado(new EstadoAtivo());
+    }
+
+    // Soma, por remetente, do que foi recebido em ordem (mede o avanço da atualização)
+    private long totalRecebido() {
+        long total = 0;
+        for (EstadoRemetente remetente : remetentes) {
+            if (remetente != null && !remetente.getIdNo().equals(idNo)) {
+                total += remetente.getUltimaSequencia();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Pedido de um vizinho em recuperação: oferece, de cada remetente guardado aqui, até onde
+     * vai enviar e transmite as faixas em segundo plano, sem uma ida e volta por mensagem
+     */
+    @Override
+    public void pedirAtualizacao(String idSolicitante, String[] remetentesIds, int[] ateSeq) 
+            throws RemoteException {
+        registrarContato(idSolicitante);
+        CanalVizinho canal = obterCanal(idSolicitante);
+        if (canal == null) {
+            return;
+        }
+        DicionarioNos dicionario = DicionarioNos.getInstancia();
+        int[] recebidoLa = new int[16];
+        for (int i = 0; i < remetentesIds.length; i++) {
+            int indice = dicionario.indice(remetentesIds[i]);
+            if (indice >= recebidoLa.length) {
+                recebidoLa = Arrays.copyOf(recebidoLa, Math.max(recebidoLa.length * 2, indice + 1));
+            }
+            recebidoLa[indice] = ateSeq[i];
+        }
+
+        // Candidatos: as próprias e os remetentes conhecidos aqui, menos o próprio solicitante
+        List<Integer> candidatos = new ArrayList<>();
+        int indiceProprio = dicionario.indice(idNo);
+        candidatos.add(indiceProprio);
+        for (EstadoRemetente remetente : remetentes) {
+            if (remetente != null && remetente.getIndice() != indiceProprio 
+                    && remetente.getIndice() != canal.getIndiceVizinho()) {
+                candidatos.add(remetente.getIndice());
+            }
+        }
+        List<String> ofertaIds = new ArrayList<>();
+        int[] ofertaAteSeq = new int[candidatos.size()];
+        int[] faixas = new int[candidatos.size() * 3]; // {remetente, de, ate} achatados
+        int quantidade = 0;
+        for (int indice : candidatos) {
+            int la = indice < recebidoLa.length ? recebidoLa[indice] : 0;
+            int aqui = ultimaConhecida(indice);
+            // Só oferece quem ainda está guardado até o fim: a oferta é o que o solicitante vai esperar
+            if (aqui > la && isGuardada(indice, aqui)) {
+                ofertaAteSeq[ofertaIds.size()] = aqui;
+                ofertaIds.add(dicionario.nome(indice));
+                faixas[quantidade++] = indice;
+                faixas[quantidade++] = la + 1;
+                faixas[quantidade++] = aqui;
+            }
+        }
+        String[] oferta = ofertaIds.toArray(new String[0]);
+        int[] ofertaSeq = Arrays.copyOf(ofertaAteSeq, oferta.length);
+        int[] faixasPedidas = Arrays.copyOf(faixas, quantidade);
+        try {
+            pings.execute(() -> {
+                try {
+                    canal.getVizinho().ofertaAtualizacao(idNo, oferta, ofertaSeq);
+                } catch (RemoteException e) {
+                    GerenciadorLog.getInstancia().registrar(idNo, 
+                        "Falha ao enviar oferta de atualização para " + idSolicitante);
+                    return;
+                }
+                transmitirAtualizacao(canal, faixasPedidas);
+            });
+        } catch (RejectedExecutionException e) {
+            // Nó sendo desligado
+        }
+    }
+
+    private boolean isGuardada(int indiceRemetente, int seq) {
+        if (indiceRemetente == DicionarioNos.getInstancia().indice(idNo)) {
+            return isPendente(seq);
+        }
+        return estadoRemetente(indiceRemetente).getRecentes().contem(seq);
+    }
+
+    /**
+     * Transmite as faixas em ordem pela fila do canal, um bloco por vez: o próximo bloco só é lido
+     * quando a fila baixa, então a memória fica limitada e o ritmo é o do enlace
+     */
+    private void transmitirAtualizacao(CanalVizinho canal, int[] faixas) {
+        int enviadas = 0;
+        for (int i = 0; i + 2 < faixas.length; i += 3) {
+            for (int de = faixas[i + 1]; de <= faixas[i + 2]; de += LOTE_ATUALIZACAO) {
+                if (!aguardarFilaCanal(canal)) {
+                    return; // Vizinho saiu ou o nó foi desligado
+                }
+                List<Mensagem> bloco = guardadas(faixas[i], de, Math.min(faixas[i + 2], de + LOTE_ATUALIZACAO - 1));
+                for (Mensagem msg : bloco) {
+                    canal.enfileirar(msg);
+                }
+                enviadas += bloco.size();
+            }
+        }
+        GerenciadorLog.getInstancia().registrar(idNo, 
+            "Atualização de " + canal.getIdVizinho() + ": " + enviadas + " mensagem(ns) transmitida(s)");
+    }
+
+    // Espera a fila do canal ficar abaixo de um bloco; false se o canal foi encerrado
+    private boolean aguardarFilaCanal(CanalVizinho canal) {
+        while (canais.get(canal.getVizinho()) == canal) {
+            if (canal.getProfundidadeFila() <= LOTE_ATUALIZACAO) {
+                return true;
+            }
+            try {
+                Thread.sleep(tickTemporizadorMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // Oferta de um vizinho para a atualização em andamento: define até onde esperar cada remetente
+    @Override
+    public void ofertaAtualizacao(String idVizinho, String[] remetentesIds, int[] ateSeq) throws RemoteException {
+        registrarContato(idVizinho);
+        AtualizacaoRecuperacao atual = atualizacao;
+        if (atual == null) {
+            return;
+        }
+        DicionarioNos dicionario = DicionarioNos.getInstancia();
+        int[] indices = new int[remetentesIds.length];
+        for (int i = 0; i < remetentesIds.length; i++) {
+            indices[i] = dicionario.indice(remetentesIds[i]);
+        }
+        atual.registrarOferta(idVizinho, indices, ateSeq);
+        GerenciadorLog.getInstancia().registrar(idNo, 
+            "Oferta de atualização de " + idVizinho + ": " + remetentesIds.length + " remetente(s)");
+        verificarAtualizacao();
+    }
+
+    // Reenvia ao canal as próprias a partir de 'de', com temporizadores de retransmissão no modo direto
+    private void reenviarPendentes(CanalVizinho canal, int de) {
+        List<Mensagem> pendentes = obterPendentes(de, contadorSequencia.get());
+        if (pendentes.isEmpty()) {
+            return;
+        }
+        if (modoDifusao == ModoDifusao.DIRETO) {
+            for (Mensagem msg : pendentes) {
+                canal.registrarRetransmissao(new RetransmissaoPendente(this, msg, canal));
+            }
+        }
+        GerenciadorLog.getInstancia().registrar(idNo, 
+            "Reenviando " + pendentes.size() + " mensagem(ns) pendente(s) para " + canal.getIdVizinho());
+        canal.reenviar(pendentes);
     }
     
     // NOVO: Métodos para controle de estado
@@ -384,8 +1962,11 @@ public class No extends UnicastRemoteObject implements NoInterface {
     }
 
     public void adicionarVizinho(NoInterface vizinho) throws RemoteException {
+        // Vizinho na mesma JVM: usa o acesso local em vez do stub remoto
+        vizinho = DiretorioLocal.getInstancia().resolver(vizinho);
         if (!vizinhos.contains(vizinho)) {
             vizinhos.add(vizinho);
+            abrirCanal(vizinho);
             // Conecta de volta automaticamente
             try {
                 vizinho.adicionarVizinho(this);
@@ -395,25 +1976,78 @@ public class No extends UnicastRemoteObject implements NoInterface {
         }
     }
 
+    // Cria e inicia o canal de saída do vizinho, se ainda não existir
+    private void abrirCanal(NoInterface vizinho) {
+        if (canais.containsKey(vizinho)) {
+            return;
+        }
+        String idVizinho;
+        try {
+            idVizinho = vizinho.getIdNo();
+        } catch (RemoteException e) {
+            idVizinho = vizinho.toString();
+        }
+        // Até o primeiro anúncio, assume a janela de recepção padrão a partir da sequência atual;
+        // o que foi relido do log de envio ainda não tem confirmação de ninguém e é reenviado
+        int confirmadoInicial = contadorSequencia.get();
+        LogEnvio log = logEnvio;
+        if (log != null && recuperadasAte > 0) {
+            int primeira = Math.max(recuperadasDe, log.getPrimeiraSeq());
+            if (primeira > 0 && primeira <= recuperadasAte) {
+                confirmadoInicial = primeira - 1;
+            }
+        }
+        int indiceVizinho = DicionarioNos.getInstancia().indice(idVizinho);
+        CanalVizinho canal = new CanalVizinho(this, vizinho, idVizinho, 
+            indiceVizinho, confirmadoInicial, contadorSequencia.get() + janelaRecepcao);
+        if (canais.putIfAbsent(vizinho, canal) == null) {
+            registrarContato(indiceVizinho); // O detector começa a contar a partir da conexão
+            canal.iniciar();
+            divulgarArvore(canal);
+            if (confirmadoInicial < contadorSequencia.get()) {
+                reenviarPendentes(canal, confirmadoInicial + 1);
+            }
+        }
+    }
+
+    private CanalVizinho encerrarCanal(NoInterface vizinho) {
+        CanalVizinho canal = canais.remove(vizinho);
+        if (canal != null) {
+            canal.encerrar();
+            AtualizacaoRecuperacao atual = atualizacao;
+            if (atual != null) {
+                atual.descartarVizinho(canal.getIdVizinho());
+            }
+            creditosAtualizados(); // Um vizinho a menos pode liberar quem espera créditos
+            // A árvore se refaz sem o vizinho; se a posição deste nó mudou, os demais ficam sabendo
+            if (arvore.removerVizinho(canal.getIdVizinho())) {
+                divulgarArvore();
+            }
+        }
+        return canal;
+    }
+
+    private CanalVizinho obterCanal(String idVizinho) {
+        for (CanalVizinho canal : canais.values()) {
+            if (canal.getIdVizinho().equals(idVizinho)) {
+                return canal;
+            }
+        }
+        return null;
+    }
+
+    // Canais de saída atuais (profundidade das filas por vizinho)
+    public Collection<CanalVizinho> getCanais() {
+        return canais.values();
+    }
+
     private NoInterface obterNo(String idNo) throws RemoteException {
         try {
-            // Usa singleton
-            return RegistryManager.getInstancia().buscarNo(idNo);
-        } catch (NotBoundException e) {
-            GerenciadorLog.getInstancia().registrar(this.idNo, 
-                "Nó " + idNo + " não encontrado no registry");
-            throw new RemoteException("Nó não encontrado", e);
+            return transporte.buscarNo(idNo);
         } catch (RemoteException e) {
             GerenciadorLog.getInstancia().registrar(this.idNo, 
-                "Falha no registry, tentando reconectar...");
-            try {
-                RegistryManager.getInstancia().reconectar();
-                return RegistryManager.getInstancia().buscarNo(idNo);
-            } catch (Exception ex) {
-                GerenciadorLog.getInstancia().registrar(this.idNo, 
-                    "Falha crítica no registry");
-                throw new RemoteException("Registry inacessível", ex);
-            }
+                "Nó " + idNo + " inacessível: " + e.getMessage());
+            throw e;
         }
     }
 
@@ -438,6 +2072,286 @@ public class No extends UnicastRemoteObject implements NoInterface {
         }
     }
 
+    // Configura o atraso máximo de um ACK cumulativo antes de ser enviado sozinho
+    public void setAtrasoAck(long atrasoMs) {
+        this.atrasoAckMs = Math.max(0, atrasoMs);
+    }
+
+    // Configura a janela de coalescência de envios (0 = envio imediato)
+    public void setJanelaLote(long janelaMs) {
+        this.janelaLoteMs = Math.max(0, janelaMs);
+    }
+
+    // Configura o número máximo de mensagens por lote
+    public void setTamanhoMaxLote(int tamanhoMax) {
+        this.tamanhoMaxLote = Math.max(1, tamanhoMax);
+    }
+
+    public long getJanelaLote() {
+        return janelaLoteMs;
+    }
+
+    public int getTamanhoMaxLote() {
+        return tamanhoMaxLote;
+    }
+
+    // Limiar de suspeita: 8 ~ uma chance em 10^8 de suspeitar de um vizinho vivo
+    public void setLimiarPhi(double limiar) {
+        this.limiarPhi = limiar;
+    }
+
+    // Quanto tempo um vizinho fica suspeito antes de ser removido como falho
+    public void setPrazoSuspeita(long prazoMs) {
+        this.prazoSuspeitaMs = Math.max(0, prazoMs);
+    }
+
+    // Intervalo dos pings em enlaces ociosos; vale para detectores criados depois da mudança
+    public void setIntervaloHeartbeat(long intervaloMs) {
+        this.intervaloHeartbeatMs = Math.max(10, intervaloMs);
+    }
+
+    // Nível de suspeita atual de um vizinho
+    public double getPhi(String idVizinho) {
+        return estadoRemetente(DicionarioNos.getInstancia().indice(idVizinho)).getDetector().phi(System.nanoTime());
+    }
+
+    /**
+     * Modo de difusão dos broadcasts; todos os nós do grupo devem usar o mesmo
+     * ARVORE e FOFOCA alcançam todo o grafo conectado, não apenas os vizinhos diretos
+     */
+    public void setModoDifusao(ModoDifusao modo) {
+        this.modoDifusao = modo;
+        GerenciadorLog.getInstancia().registrar(idNo, "Modo de difusão: " + modo);
+        if (modo == ModoDifusao.FOFOCA) {
+            agendarAntiEntropia();
+        }
+    }
+
+    public ModoDifusao getModoDifusao() {
+        return modoDifusao;
+    }
+
+    /**
+     * Ordem de entrega; todos os nós do grupo devem usar a mesma, definida antes do tráfego
+     * CAUSAL e TOTAL precisam que os broadcasts de todos alcancem todos (grafo completo no
+     * modo DIRETO, ou ARVORE/FOFOCA); na TOTAL, o sequenciador é eleito pelo RegistryManager
+     */
+    public void setOrdemEntrega(OrdemEntrega ordem) {
+        this.ordemEntrega = ordem;
+        GerenciadorLog.getInstancia().registrar(idNo, "Ordem de entrega: " + ordem);
+        if (ordem == OrdemEntrega.TOTAL) {
+            verificarSequenciador();
+        } else if (idNo.equals(sequenciadorAtual)) {
+            destituirSequenciador(idNo);
+        }
+    }
+
+    public OrdemEntrega getOrdemEntrega() {
+        return ordemEntrega;
+    }
+
+    public String getSequenciadorAtual() {
+        return sequenciadorAtual;
+    }
+
+    /**
+     * Grava as próprias mensagens em um log segmentado antes de enviá-las, sob a política de fsync dada
+     * Chamar antes do tráfego: um log existente no diretório é relido, a sequência continua
+     * depois dele e as mensagens ainda guardadas são reenviadas aos vizinhos, que descartam as repetidas
+     */
+    public void habilitarLogEnvio(Path diretorio, PoliticaSincronizacao politica) throws IOException {
+        LogEnvio log = new LogEnvio(diretorio, politica);
+        LogEnvio anterior = logEnvio;
+        logEnvio = log;
+        if (anterior != null) {
+            anterior.close();
+        }
+        if (log.getUltimaSeq() == 0) {
+            GerenciadorLog.getInstancia().registrar(idNo, "Log de envio habilitado: " + log.resumo());
+            return;
+        }
+        contadorSequencia.accumulateAndGet(log.getUltimaSeq(), Math::max);
+        mensagensPendentes.liberarAte(log.getUltimaSeq()); // As relidas são lidas do log, não do heap
+        recuperadasDe = log.getPrimeiraSeq();
+        recuperadasAte = log.getUltimaSeq();
+        GerenciadorLog.getInstancia().registrar(idNo, 
+            "Log de envio relido: mensagens " + recuperadasDe + " a " + recuperadasAte + " (" + log.resumo() + ")");
+        for (CanalVizinho canal : canais.values()) {
+            reenviarPendentes(canal, Math.max(recuperadasDe, canal.getConfirmadoAte() + 1));
+        }
+    }
+
+    public LogEnvio getLogEnvio() {
+        return logEnvio;
+    }
+
+    /**
+     * Grava a sequência própria e as marcas d'água de entrega a cada intervalo, e no desligamento
+     * Chamar antes do tráfego: um checkpoint existente é relido e o nó continua dele; o que chegou
+     * depois da última gravação é pedido de novo aos remetentes pelos NACKs
+     * Sem o log de envio, uma queda repete as sequências próprias usadas depois da última gravação
+     * (os vizinhos descartam as novas como repetidas): habilitar o log junto, antes deste
+     */
+    public void habilitarCheckpoint(Path arquivo, long intervaloMs) throws IOException {
+        CheckpointNo salvo = CheckpointNo.ler(arquivo);
+        if (salvo != null) {
+            if (!salvo.getIdNo().equals(idNo)) {
+                throw new IOException("Checkpoint " + arquivo + " pertence ao nó " + salvo.getIdNo());
+            }
+            restaurarCheckpoint(salvo);
+        }
+        if (logEnvio == null) {
+            GerenciadorLog.getInstancia().registrar(idNo, 
+                "Checkpoint sem log de envio: após uma queda, sequências próprias do último intervalo podem se repetir");
+        }
+        this.intervaloCheckpointMs = Math.max(1, intervaloMs);
+        this.arquivoCheckpoint = arquivo;
+        agendarCheckpoint();
+    }
+
+    /**
+     * A sequência própria nunca volta atrás; de cada remetente, a recepção recomeça da marca de
+     * entrega, não da de recebimento: o que estava na fila de entrega na queda é pedido de novo
+     */
+    private void restaurarCheckpoint(CheckpointNo salvo) {
+        DicionarioNos dicionario = DicionarioNos.getInstancia();
+        int restaurados = 0;
+        synchronized (travaCreditos) {
+            contadorSequencia.accumulateAndGet(salvo.getContadorSequencia(), Math::max);
+            mensagensPendentes.liberarAte(contadorSequencia.get());
+            for (CheckpointNo.Marca marca : salvo.getMarcas()) {
+                if (marca.remetente.equals(idNo)) {
+                    continue;
+                }
+                int indice = dicionario.indice(marca.remetente);
+                EstadoRemetente remetente = estadoRemetente(indice);
+                if (marca.entregueAte > remetente.getUltimaSequencia()) {
+                    remetente.setUltimaSequencia(marca.entregueAte);
+                    remetente.getEntregues().restaurar(marca.entregueAte);
+                    remetente.setEntregueAte(marca.entregueAte);
+                    remetente.getForaDeOrdem().liberarAte(marca.entregueAte);
+                    entregaCausal.registrarEntregue(indice, marca.entregueAte);
+                    restaurados++;
+                }
+                if (marca.dependenciaEnviada > remetente.getDependenciaEnviada()) {
+                    remetente.setDependenciaEnviada(Math.min(marca.dependenciaEnviada, marca.entregueAte));
+                }
+            }
+        }
+        GerenciadorLog.getInstancia().registrar(idNo, "Checkpoint relido: sequência própria " 
+            + salvo.getContadorSequencia() + ", " + restaurados + " remetente(s), gravado há " 
+            + (System.currentTimeMillis() - salvo.getGravadoEm()) + " ms");
+    }
+
+    private void agendarCheckpoint() {
+        synchronized (travaCheckpoint) {
+            if (checkpointAgendado == null) {
+                // Gravação com fsync: roda fora do executor, para não atrasar o envio de ACKs
+                checkpointAgendado = roda.agendar(intervaloCheckpointMs, () -> {
+                    try {
+                        pings.execute(this::checkpointPeriodico);
+                    } catch (RejectedExecutionException e) {
+                        // Nó sendo desligado: finalizarRecursos grava o último
+                    }
+                });
+            }
+        }
+    }
+
+    private void checkpointPeriodico() {
+        synchronized (travaCheckpoint) {
+            checkpointAgendado = null;
+        }
+        if ("INATIVO".equals(estado.getNomeEstado())) {
+            return;
+        }
+        gravarCheckpoint();
+        agendarCheckpoint();
+    }
+
+    // Instantâneo dos contadores (com travaCreditos, coerente com as dependências anunciadas) e gravação atômica
+    private void gravarCheckpoint() {
+        Path arquivo = arquivoCheckpoint;
+        if (arquivo == null) {
+            return;
+        }
+        List<CheckpointNo.Marca> marcas = new ArrayList<>();
+        long assinatura;
+        CheckpointNo ponto;
+        synchronized (travaCreditos) {
+            int contador = contadorSequencia.get();
+            assinatura = contador;
+            for (EstadoRemetente remetente : remetentes) {
+                if (remetente == null || remetente.getIdNo().equals(idNo)) {
+                    continue;
+                }
+                int entregueAte = remetente.getEntregues().getEntregueAte();
+                if (entregueAte > 0) {
+                    marcas.add(new CheckpointNo.Marca(remetente.getIdNo(), entregueAte, 
+                        remetente.getDependenciaEnviada()));
+                    assinatura += entregueAte;
+                }
+            }
+            ponto = new CheckpointNo(idNo, contador, marcas);
+        }
+        synchronized (travaCheckpoint) {
+            if (assinatura == assinaturaCheckpoint) {
+                return; // Nada mudou desde o último
+            }
+            try {
+                ponto.gravar(arquivo);
+                assinaturaCheckpoint = assinatura;
+            } catch (IOException e) {
+                GerenciadorLog.getInstancia().registrar(idNo, 
+                    "Falha ao gravar checkpoint em " + arquivo + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Quanto o sequenciador espera acumulando chegadas antes de fechar um lote de ordem
+    public void setJanelaOrdem(long janelaMs) {
+        this.janelaOrdemMs = Math.max(0, janelaMs);
+    }
+
+    // Vizinhos sorteados para cada mensagem nova na fofoca (0 = automático)
+    public void setFanoutFofoca(int fanout) {
+        this.fanoutFofoca = Math.max(0, fanout);
+    }
+
+    // Período da troca de resumos com um vizinho sorteado
+    public void setIntervaloAntiEntropia(long intervaloMs) {
+        this.intervaloAntiEntropiaMs = Math.max(1, intervaloMs);
+    }
+
+    public ArvoreDifusao getArvore() {
+        return arvore;
+    }
+
+    // Quantas mensagens fora de ordem cada remetente pode manter aqui (créditos anunciados)
+    public void setJanelaRecepcao(int janela) {
+        this.janelaRecepcao = Math.max(1, janela);
+    }
+
+    public void setPoliticaCredito(PoliticaCredito politica) {
+        this.politicaCredito = politica;
+    }
+
+    public PoliticaCredito getPoliticaCredito() {
+        return politicaCredito;
+    }
+
+    // Política BLOQUEAR: quanto um broadcast espera por créditos antes de falhar
+    public void setEsperaMaximaCredito(long esperaMs) {
+        this.esperaMaximaCreditoMs = Math.max(0, esperaMs);
+    }
+
+    // Mensagens aguardando créditos na fila local (política ENFILEIRAR)
+    public int getMensagensSemCredito() {
+        synchronized (travaCreditos) {
+            return filaSemCredito.size();
+        }
+    }
+
     // NOVO: Método para configurar estratégia customizada
     public void setEstrategiaFalha(EstrategiaFalha estrategia) throws RemoteException {
         this.estrategiaFalha = estrategia;
@@ -447,8 +2361,12 @@ public class No extends UnicastRemoteObject implements NoInterface {
 
     // NOVO: Remove vizinho (para undo de connect)
     public void removerVizinho(NoInterface vizinho) throws RemoteException {
+        vizinho = DiretorioLocal.getInstancia().resolver(vizinho);
         if (vizinhos.contains(vizinho)) {
             vizinhos.remove(vizinho);
+            if (encerrarCanal(vizinho) != null) {
+                liberarPendentesConfirmados();
+            }
             GerenciadorLog.getInstancia().registrar(idNo, 
                 "Vizinho removido");
         }
@@ -458,4 +2376,21 @@ public class No extends UnicastRemoteObject implements NoInterface {
     public EstrategiaFalha getEstrategiaFalha() {
         return estrategiaFalha;
     }
-}
\ No newline at end of file
+
+    // Sequências reservadas com travaCreditos e já anexadas ao log, à espera do disco e da vez nos canais
+    private static final class ReservaEnvio {
+        final List<Mensagem> mensagens;
+        final LogEnvio log;         // null sem log ou sem vizinhos
+        final long posicaoLog;      // Fim do log depois da última mensagem da reserva
+        final long vez;
+        final IOException falhaLog; // O log recusou o resto do lote, que ficou sem sequência
+
+        ReservaEnvio(List<Mensagem> mensagens, LogEnvio log, long posicaoLog, long vez, IOException falhaLog) {
+            this.mensagens = mensagens;
+            this.log = log;
+            this.posicaoLog = posicaoLog;
+            this.vez = vez;
+            this.falhaLog = falhaLog;
+        }
+    }
+}
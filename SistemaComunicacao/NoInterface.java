@@ -1,16 +1,29 @@
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 public interface NoInterface extends Remote {
     void receive(Mensagem msg) throws RemoteException;
+    void receiveBatch(List<Mensagem> msgs) throws RemoteException;
+    void receiveBatch(List<Mensagem> msgs, String remetenteId, int ackAte, int credito) throws RemoteException;
     void ack(Mensagem msg) throws RemoteException;
+    void ackCumulativo(String receptorId, int ateSeq, int credito) throws RemoteException;
     void heartbeat() throws RemoteException;
+    void heartbeat(String remetenteId) throws RemoteException;
     void handleNACK(String senderId, int lastReceivedSeq) throws RemoteException;
+    void handleNACK(String senderId, int lastReceivedSeq, int[] lacunas, int credito) throws RemoteException;
+    void nackRepasse(String solicitanteId, String origemId, int[] lacunas) throws RemoteException;
+    void resumoFofoca(String idNo, String[] remetentes, int[] ateSeq, boolean responder) throws RemoteException;
+    void pedirAtualizacao(String idSolicitante, String[] remetentes, int[] ateSeq) throws RemoteException;
+    void ofertaAtualizacao(String idVizinho, String[] remetentes, int[] ateSeq) throws RemoteException;
+    void anunciarArvore(String idNo, String raiz, int distancia, String pai, long versao) throws RemoteException;
     void adicionarVizinho(NoInterface vizinho) throws RemoteException;
     void broadcast(String conteudo) throws RemoteException;
+    void broadcast(List<String> conteudos) throws RemoteException;
     void setSimularFalhaOmissao(boolean ativar) throws RemoteException;
     void setSimularFalhaTemporizacao(boolean ativar) throws RemoteException;
     void ativar() throws RemoteException;
     void recuperar() throws RemoteException;
     void entrarEmFalha(String motivo) throws RemoteException;
+    String getIdNo() throws RemoteException;
 }
\ No newline at end of file
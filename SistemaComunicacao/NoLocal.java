@@ -0,0 +1,244 @@
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Acesso a um nó que vive na mesma JVM
+ * Mensagens (imutáveis) passam por referência através de uma fila sem bloqueio,
+ * consumida por uma thread do nó destino: enviar custa apenas um offer
+ * A fila é limitada: cheia, recusa o envio e o canal do remetente tenta de novo mais tarde
+ */
+public class NoLocal implements NoInterface {
+    private static final int CAPACIDADE_ENTRADA = 4096;
+    private static final long ESPERA_REENTREGA_MAX_MS = 50;
+
+    private final No destino;
+    private final Queue<Mensagem> entrada;
+    private final AtomicInteger tamanhoEntrada = new AtomicInteger();
+    private final Thread consumidor;
+    private volatile boolean aguardando;
+    private volatile boolean ativo;
+
+    public NoLocal(No destino) {
+        this.destino = destino;
+        this.entrada = new ConcurrentLinkedQueue<>();
+        this.ativo = true;
+        this.consumidor = new Thread(this::consumir, "local-" + destino.getIdNo());
+        this.consumidor.setDaemon(true);
+        this.consumidor.start();
+    }
+
+    No getDestino() {
+        return destino;
+    }
+
+    public void encerrar() {
+        ativo = false;
+        LockSupport.unpark(consumidor);
+    }
+
+    // Reserva espaço para o lote inteiro antes de enfileirar: ou entra tudo ou nada
+    private void reservar(int quantidade) throws RemoteException {
+        if (!ativo) {
+            throw new RemoteException("Nó " + destino.getIdNo() + " não está mais ativo nesta JVM");
+        }
+        if ("INATIVO".equals(destino.getEstado().getNomeEstado())) {
+            // Desligado, mas pode voltar: recusa agora e o canal do remetente tenta de novo depois
+            throw new RemoteException("Nó " + destino.getIdNo() + " inativo");
+        }
+        int atual;
+        do {
+            atual = tamanhoEntrada.get();
+            if (atual > 0 && atual + quantidade > CAPACIDADE_ENTRADA) {
+                throw new RemoteException("Fila de entrada de " + destino.getIdNo() + " cheia");
+            }
+        } while (!tamanhoEntrada.compareAndSet(atual, atual + quantidade));
+    }
+
+    private void entregar(List<Mensagem> msgs) {
+        for (Mensagem msg : msgs) {
+            entrada.offer(msg);
+        }
+        if (aguardando) {
+            LockSupport.unpark(consumidor);
+        }
+    }
+
+    // Thread do nó destino: processa as mensagens na ordem em que foram ofertadas
+    private void consumir() {
+        while (ativo) {
+            Mensagem msg = entrada.poll();
+            if (msg == null) {
+                aguardando = true;
+                // Confere de novo para não perder um offer feito antes do flag
+                if (entrada.isEmpty() && ativo) {
+                    LockSupport.park(this);
+                }
+                aguardando = false;
+                continue;
+            }
+            processar(msg);
+            tamanhoEntrada.decrementAndGet();
+        }
+    }
+
+    /**
+     * Faixa do destino cheia: a mensagem espera aqui em vez de ser descartada; enquanto isso a
+     * fila de entrada enche e passa a recusar, o que devolve a pressão ao canal do remetente
+     */
+    private void processar(Mensagem msg) {
+        long esperaMs = 1;
+        while (true) {
+            try {
+                destino.receive(msg);
+                return;
+            } catch (RemoteException e) {
+                if (!ativo || "INATIVO".equals(destino.getEstado().getNomeEstado())) {
+                    GerenciadorLog.getInstancia().registrar(destino.getIdNo(), 
+                        "Mensagem local descartada: " + e.getMessage());
+                    return;
+                }
+            }
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(esperaMs));
+            esperaMs = Math.min(ESPERA_REENTREGA_MAX_MS, esperaMs * 2);
+        }
+    }
+
+    @Override
+    public void receive(Mensagem msg) throws RemoteException {
+        reservar(1);
+        entregar(List.of(msg));
+    }
+
+    @Override
+    public void receiveBatch(List<Mensagem> msgs) throws RemoteException {
+        reservar(msgs.size());
+        entregar(msgs);
+    }
+
+    @Override
+    public void receiveBatch(List<Mensagem> msgs, String remetenteId, int ackAte, int credito) throws RemoteException {
+        // O contato e o repasse precisam do vizinho de origem, que a fila não guarda;
+        // a cópia que sai da fila depois é reconhecida como já repassada
+        reservar(msgs.size());
+        destino.registrarChegada(msgs, remetenteId);
+        entregar(msgs);
+        if (ackAte > 0) {
+            destino.ackCumulativo(remetenteId, ackAte, credito);
+        }
+    }
+
+    // Mensagens de controle são chamadas diretas, sem fila
+    @Override
+    public void ack(Mensagem msg) throws RemoteException {
+        destino.ack(msg);
+    }
+
+    @Override
+    public void ackCumulativo(String receptorId, int ateSeq, int credito) throws RemoteException {
+        destino.ackCumulativo(receptorId, ateSeq, credito);
+    }
+
+    @Override
+    public void heartbeat() throws RemoteException {
+        destino.heartbeat();
+    }
+
+    @Override
+    public void heartbeat(String remetenteId) throws RemoteException {
+        destino.heartbeat(remetenteId);
+    }
+
+    @Override
+    public void handleNACK(String senderId, int lastReceivedSeq) throws RemoteException {
+        destino.handleNACK(senderId, lastReceivedSeq);
+    }
+
+    @Override
+    public void handleNACK(String senderId, int lastReceivedSeq, int[] lacunas, int credito) throws RemoteException {
+        destino.handleNACK(senderId, lastReceivedSeq, lacunas, credito);
+    }
+
+    @Override
+    public void nackRepasse(String solicitanteId, String origemId, int[] lacunas) throws RemoteException {
+        destino.nackRepasse(solicitanteId, origemId, lacunas);
+    }
+
+    @Override
+    public void resumoFofoca(String idNo, String[] remetentes, int[] ateSeq, boolean responder) 
+            throws RemoteException {
+        destino.resumoFofoca(idNo, remetentes, ateSeq, responder);
+    }
+
+    @Override
+    public void pedirAtualizacao(String idSolicitante, String[] remetentes, int[] ateSeq) 
+            throws RemoteException {
+        destino.pedirAtualizacao(idSolicitante, remetentes, ateSeq);
+    }
+
+    @Override
+    public void ofertaAtualizacao(String idVizinho, String[] remetentes, int[] ateSeq) 
+            throws RemoteException {
+        destino.ofertaAtualizacao(idVizinho, remetentes, ateSeq);
+    }
+
+    @Override
+    public void anunciarArvore(String idNo, String raiz, int distancia, String pai, long versao) 
+            throws RemoteException {
+        destino.anunciarArvore(idNo, raiz, distancia, pai, versao);
+    }
+
+    @Override
+    public void adicionarVizinho(NoInterface vizinho) throws RemoteException {
+        destino.adicionarVizinho(vizinho);
+    }
+
+    @Override
+    public void broadcast(String conteudo) throws RemoteException {
+        destino.broadcast(conteudo);
+    }
+
+    @Override
+    public void broadcast(List<String> conteudos) throws RemoteException {
+        destino.broadcast(conteudos);
+    }
+
+    @Override
+    public void setSimularFalhaOmissao(boolean ativar) throws RemoteException {
+        destino.setSimularFalhaOmissao(ativar);
+    }
+
+    @Override
+    public void setSimularFalhaTemporizacao(boolean ativar) throws RemoteException {
+        destino.setSimularFalhaTemporizacao(ativar);
+    }
+
+    @Override
+    public void ativar() throws RemoteException {
+        destino.ativar();
+    }
+
+    @Override
+    public void recuperar() throws RemoteException {
+        destino.recuperar();
+    }
+
+    @Override
+    public void entrarEmFalha(String motivo) throws RemoteException {
+        destino.entrarEmFalha(motivo);
+    }
+
+    @Override
+    public String getIdNo() {
+        return destino.getIdNo();
+    }
+
+    @Override
+    public String toString() {
+        return "NoLocal[" + destino.getIdNo() + "]";
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Em que ordem as mensagens recebidas são entregues à aplicação
+ */
+public enum OrdemEntrega {
+    FIFO,    // Cada remetente na ordem em que enviou; remetentes diferentes se intercalam livremente
+    CAUSAL,  // Uma mensagem só sai depois das que o remetente já tinha entregue ao enviá-la
+    TOTAL    // Todos os nós entregam tudo na mesma ordem, definida pelo sequenciador
+}
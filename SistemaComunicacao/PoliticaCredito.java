@@ -0,0 +1,8 @@
+/**
+ * O que broadcast faz quando algum vizinho não tem mais créditos
+ */
+public enum PoliticaCredito {
+    BLOQUEAR,    // Espera até que os créditos voltem, por no máximo um prazo
+    FALHAR,      // Lança exceção com as mensagens que não couberam
+    ENFILEIRAR   // Guarda localmente (até um limite) e envia quando os créditos voltarem
+}
@@ -0,0 +1,8 @@
+/**
+ * Quando o log de envio força as escritas para o disco (fsync)
+ */
+public enum PoliticaSincronizacao {
+    SEMPRE,     // Cada envio espera o fsync; envios simultâneos compartilham o mesmo (group commit)
+    INTERVALO,  // fsync periódico em segundo plano; uma queda do sistema perde no máximo o último intervalo
+    NUNCA       // Sem fsync: sobrevive à queda do processo (páginas mapeadas), não à do sistema operacional
+}
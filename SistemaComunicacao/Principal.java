@@ -1,29 +1,38 @@
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 public class Principal {
+    private static final String DIRETORIO_CHECKPOINTS = "checkpoints";
+    private static final String DIRETORIO_LOGS_ENVIO = "logs-envio";
+
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.err.println("Uso: java Principal <ID_No>");
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Uso: java Principal <ID_No> [rmi|nio:<porta>]");
             System.exit(1);
         }
 
         String idNo = args[0];
 
         try {
-            RegistryManager registryManager = RegistryManager.getInstancia();
-            No no = new No(idNo);
+            Transporte transporte = criarTransporte(args.length > 1 ? args[1] : "rmi");
+            No no = new No(idNo, transporte);
+            // Reinício rápido: o log de envio guarda a sequência exata (e as mensagens para reenvio);
+            // o checkpoint, as marcas d'água. Só o checkpoint repetiria as sequências do último intervalo
+            no.habilitarLogEnvio(Paths.get(DIRETORIO_LOGS_ENVIO, idNo), PoliticaSincronizacao.INTERVALO);
+            no.habilitarCheckpoint(Paths.get(DIRETORIO_CHECKPOINTS, idNo + ".ckpt"), 
+                No.INTERVALO_CHECKPOINT_PADRAO_MS);
             
             MetricasObserver metricas = new MetricasObserver();
             no.adicionarObservador(metricas);
             
-            registryManager.registrarNo(idNo, no);
+            no.publicar();
             
             // Cria gerenciador de comandos
             GerenciadorComandos gerenciadorComandos = new GerenciadorComandos();
             
             Scanner scanner = new Scanner(System.in);
             System.out.println("\nComandos disponíveis para " + idNo + ":");
-            System.out.println("  connect <no> - Conectar a outro nó");
+            System.out.println("  connect <no> - Conectar a outro nó (host:porta no NIO)");
             System.out.println("  broadcast <mensagem> - Enviar mensagem");
             System.out.println("  falha <tipo> <on/off> - Ativar/desativar falha");
             System.out.println("  estado - Ver estado atual");
@@ -85,4 +94,15 @@ public class Principal {
             e.printStackTrace();
         }
     }
+
+    // RMI é o transporte padrão; "nio:<porta>" usa o transporte TCP não bloqueante
+    private static Transporte criarTransporte(String especificacao) {
+        if (especificacao.startsWith("nio:")) {
+            return new TransporteNio(Integer.parseInt(especificacao.substring(4)));
+        }
+        if (!especificacao.equals("rmi")) {
+            throw new IllegalArgumentException("Transporte desconhecido: " + especificacao);
+        }
+        return new TransporteRmi();
+    }
 }
\ No newline at end of file
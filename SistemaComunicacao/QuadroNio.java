@@ -0,0 +1,188 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Formato dos quadros binários do transporte NIO
+ * Cada quadro: [tamanho:int][tipo:byte][corpo], tamanho conta tipo + corpo
+ * Mensagens no corpo usam o CodecMensagem da conexão
+ */
+public class QuadroNio {
+    public static final byte HELLO = 1;
+    public static final byte MENSAGEM = 2;
+    public static final byte LOTE = 3;
+    public static final byte ACK = 4;
+    public static final byte NACK = 5;
+    public static final byte HEARTBEAT = 6;
+    public static final byte ACK_CUMULATIVO = 7;
+    public static final byte LOTE_COM_ACK = 8;
+    public static final byte NACK_SELETIVO = 9;
+    public static final byte NACK_REPASSE = 10;
+    public static final byte ARVORE = 11;
+    public static final byte RESUMO_FOFOCA = 12;
+    public static final byte ATUALIZACAO = 13;
+
+    public static final int TAMANHO_MAX = 16 * 1024 * 1024;
+
+    // Handshake: identifica o nó que abriu (ou aceitou) a conexão e a versão do codec
+    public static ByteBuffer hello(String idNo) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = iniciar(bytes, HELLO);
+        out.writeUTF(idNo);
+        out.writeByte(CodecMensagem.VERSAO);
+        return finalizar(bytes);
+    }
+
+    public static ByteBuffer mensagem(Mensagem msg, CodecMensagem codec) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        iniciar(bytes, MENSAGEM);
+        codec.codificar(msg, bytes);
+        return finalizar(bytes);
+    }
+
+    public static ByteBuffer lote(List<Mensagem> msgs, CodecMensagem codec) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        iniciar(bytes, LOTE);
+        CodecMensagem.escreverVarint(bytes, msgs.size());
+        for (Mensagem msg : msgs) {
+            codec.codificar(msg, bytes);
+        }
+        return finalizar(bytes);
+    }
+
+    // Lote com ACK cumulativo de carona: [remetente:utf][ackAte:int][credito:varint][quantidade:varint][mensagens]
+    public static ByteBuffer loteComAck(List<Mensagem> msgs, String remetenteId, int ackAte, int credito,
+                                        CodecMensagem codec) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = iniciar(bytes, LOTE_COM_ACK);
+        out.writeUTF(remetenteId);
+        out.writeInt(ackAte);
+        CodecMensagem.escreverVarint(bytes, credito);
+        CodecMensagem.escreverVarint(bytes, msgs.size());
+        for (Mensagem msg : msgs) {
+            codec.codificar(msg, bytes);
+        }
+        return finalizar(bytes);
+    }
+
+    // ACK cumulativo com os créditos anunciados: [receptor:utf][ateSeq:int][credito:varint]
+    public static ByteBuffer ackCumulativo(String receptorId, int ateSeq, int credito) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = iniciar(bytes, ACK_CUMULATIVO);
+        out.writeUTF(receptorId);
+        out.writeInt(ateSeq);
+        CodecMensagem.escreverVarint(bytes, credito);
+        return finalizar(bytes);
+    }
+
+    public static ByteBuffer ack(Mensagem msg, CodecMensagem codec) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        iniciar(bytes, ACK);
+        codec.codificar(msg, bytes);
+        return finalizar(bytes);
+    }
+
+    public static ByteBuffer nack(String senderId, int lastReceivedSeq) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = iniciar(bytes, NACK);
+        out.writeUTF(senderId);
+        out.writeInt(lastReceivedSeq);
+        return finalizar(bytes);
+    }
+
+    // NACK com lacunas: [remetente:utf][ultimaSeq:int][credito:varint][pares:varint][inicio:varint][fim:varint]...
+    public static ByteBuffer nackSeletivo(String senderId, int lastReceivedSeq, int[] lacunas, 
+                                          int credito) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = iniciar(bytes, NACK_SELETIVO);
+        out.writeUTF(senderId);
+        out.writeInt(lastReceivedSeq);
+        CodecMensagem.escreverVarint(bytes, credito);
+        CodecMensagem.escreverVarint(bytes, lacunas.length / 2);
+        for (int i = 0; i + 1 < lacunas.length; i += 2) {
+            CodecMensagem.escreverVarint(bytes, lacunas[i]);
+            CodecMensagem.escreverVarint(bytes, lacunas[i + 1]);
+        }
+        return finalizar(bytes);
+    }
+
+    // NACK ao vizinho de cima, por mensagens repassadas: [solicitante:utf][origem:utf][pares:varint][inicio:varint][fim:varint]...
+    public static ByteBuffer nackRepasse(String solicitanteId, String origemId, int[] lacunas) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = iniciar(bytes, NACK_REPASSE);
+        out.writeUTF(solicitanteId);
+        out.writeUTF(origemId);
+        CodecMensagem.escreverVarint(bytes, lacunas.length / 2);
+        for (int i = 0; i + 1 < lacunas.length; i += 2) {
+            CodecMensagem.escreverVarint(bytes, lacunas[i]);
+            CodecMensagem.escreverVarint(bytes, lacunas[i + 1]);
+        }
+        return finalizar(bytes);
+    }
+
+    // Anúncio da árvore de repasse: [no:utf][raiz:utf][distancia:varint][pai:utf, vazio na raiz][versao:long]
+    public static ByteBuffer arvore(String idNo, String raiz, int distancia, String pai, long versao) 
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = iniciar(bytes, ARVORE);
+        out.writeUTF(idNo);
+        out.writeUTF(raiz);
+        CodecMensagem.escreverVarint(bytes, distancia);
+        out.writeUTF(pai == null ? "" : pai);
+        out.writeLong(versao);
+        return finalizar(bytes);
+    }
+
+    // Resumo da anti-entropia: [no:utf][responder:byte][quantidade:varint][remetente:utf][ateSeq:varint]...
+    public static ByteBuffer resumoFofoca(String idNo, String[] remetentes, int[] ateSeq, boolean responder) 
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = iniciar(bytes, RESUMO_FOFOCA);
+        out.writeUTF(idNo);
+        out.writeBoolean(responder);
+        CodecMensagem.escreverVarint(bytes, remetentes.length);
+        for (int i = 0; i < remetentes.length; i++) {
+            out.writeUTF(remetentes[i]);
+            CodecMensagem.escreverVarint(bytes, ateSeq[i]);
+        }
+        return finalizar(bytes);
+    }
+
+    // Transferência de estado na recuperação: [no:utf][pedido:byte][quantidade:varint][remetente:utf][ateSeq:varint]...
+    public static ByteBuffer atualizacao(String idNo, String[] remetentes, int[] ateSeq, boolean pedido) 
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = iniciar(bytes, ATUALIZACAO);
+        out.writeUTF(idNo);
+        out.writeBoolean(pedido);
+        CodecMensagem.escreverVarint(bytes, remetentes.length);
+        for (int i = 0; i < remetentes.length; i++) {
+            out.writeUTF(remetentes[i]);
+            CodecMensagem.escreverVarint(bytes, ateSeq[i]);
+        }
+        return finalizar(bytes);
+    }
+
+    public static ByteBuffer heartbeat() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        iniciar(bytes, HEARTBEAT);
+        return finalizar(bytes);
+    }
+
+    // Reserva o espaço do prefixo de tamanho e escreve o tipo
+    private static DataOutputStream iniciar(ByteArrayOutputStream bytes, byte tipo) throws IOException {
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeByte(tipo);
+        return out;
+    }
+
+    // Preenche o prefixo de tamanho e devolve o quadro pronto para escrita
+    private static ByteBuffer finalizar(ByteArrayOutputStream bytes) {
+        ByteBuffer quadro = ByteBuffer.wrap(bytes.toByteArray());
+        quadro.putInt(0, quadro.remaining() - 4);
+        return quadro;
+    }
+}
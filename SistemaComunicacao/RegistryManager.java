@@ -1,7 +1,13 @@
+import java.rmi.AlreadyBoundException;
+import java.rmi.NoSuchObjectException;
 import java.rmi.NotBoundException;
+import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** Padrão Singleton: Gerenciador único do RMI Registry
  ** Thread-safe usando inicialização tardia com double-checked locking **/
@@ -9,6 +15,13 @@ public class RegistryManager {
     private static volatile RegistryManager instancia;
     private Registry registry;
     private static final int PORTA_PADRAO = 1099;
+    private static final String NOME_SEQUENCIADOR = "sequenciador";
+    
+    // Stubs já resolvidos, reaproveitados no tráfego de controle (ACK/NACK)
+    private final Map<String, NoInterface> cacheStubs = new ConcurrentHashMap<>();
+    
+    // Mandatos de sequenciador exportados por nós desta JVM
+    private final Map<String, Mandato> mandatos = new ConcurrentHashMap<>();
     
     //Construtor privado para prevenir instanciação externa
     private RegistryManager() throws RemoteException {
@@ -44,19 +57,35 @@ public class RegistryManager {
     
     //Registra um nó no Registry
     public void registrarNo(String idNo, NoInterface no) throws RemoteException {
+        DicionarioNos.getInstancia().indice(idNo); // Índice numérico atribuído ao entrar
         registry.rebind(idNo, no);
         System.out.println(idNo + " registrado no RMI Registry");
     }
     
     //Remove um nó do Registry
     public void removerNo(String idNo) throws RemoteException, NotBoundException {
+        cacheStubs.remove(idNo);
         registry.unbind(idNo);
         System.out.println(idNo + " removido do RMI Registry");
     }
     
-    //Busca um nó no Registry
+    //Busca um nó no Registry (nós desta JVM são acessados diretamente, sem RMI)
     public NoInterface buscarNo(String idNo) throws RemoteException, NotBoundException {
-        return (NoInterface) registry.lookup(idNo);
+        NoInterface local = DiretorioLocal.getInstancia().buscar(idNo);
+        if (local != null) {
+            return local;
+        }
+        NoInterface stub = cacheStubs.get(idNo);
+        if (stub == null) {
+            stub = (NoInterface) registry.lookup(idNo);
+            cacheStubs.put(idNo, stub);
+        }
+        return stub;
+    }
+    
+    //Descarta o stub em cache (chamado após RemoteException ou falha do vizinho)
+    public void invalidarCache(String idNo) {
+        cacheStubs.remove(idNo);
     }
     
     //Lista todos os nós registrados
@@ -64,11 +93,115 @@ public class RegistryManager {
         return registry.list();
     }
     
+    /** Eleição do sequenciador da ordem total: o primeiro nó a vincular o mandato vence
+     ** O mandato é um objeto remoto próprio (não o nó), então vale para qualquer transporte
+     ** Retorna o id do sequenciador vivo, ou null se não houver **/
+    public String buscarSequenciador() throws RemoteException {
+        Lider lider;
+        try {
+            lider = (Lider) registry.lookup(NOME_SEQUENCIADOR);
+        } catch (NotBoundException e) {
+            return null;
+        }
+        try {
+            return lider.getIdNo();
+        } catch (RemoteException e) {
+            return null; // Vinculado, mas o dono morreu
+        }
+    }
+    
+    //Tenta assumir como sequenciador com o mandato 'termo'; retorna o id de quem ficou com o mandato
+    public synchronized String elegerSequenciador(String idNo, long termo) throws RemoteException {
+        String atual = buscarSequenciador();
+        if (atual != null) {
+            return atual;
+        }
+        destituirSequenciador(null); // Remove o mandato morto, se houver
+        Mandato mandato = new Mandato(idNo, termo);
+        Remote stub = UnicastRemoteObject.exportObject(mandato, 0);
+        try {
+            registry.bind(NOME_SEQUENCIADOR, stub);
+            mandatos.put(idNo, mandato);
+            return idNo;
+        } catch (AlreadyBoundException e) {
+            encerrarMandato(mandato);
+            return buscarSequenciador(); // Outro nó venceu
+        }
+    }
+    
+    //Mandato vinculado por este processo para o nó; 0 se ele não é o sequenciador
+    public long termoDoMandato(String idNo) {
+        Mandato mandato = mandatos.get(idNo);
+        return mandato != null ? mandato.getTermo() : 0;
+    }
+    
+    /** Remove o mandato se ainda for do nó indicado (ou se o dono já morreu, com idSuspeito null)
+     ** Confere antes de desvincular para não derrubar um sequenciador recém-eleito **/
+    public synchronized void destituirSequenciador(String idSuspeito) throws RemoteException {
+        String atual;
+        try {
+            atual = ((Lider) registry.lookup(NOME_SEQUENCIADOR)).getIdNo();
+        } catch (NotBoundException e) {
+            return;
+        } catch (RemoteException e) {
+            atual = null; // Dono morto
+        }
+        if (atual != null && !atual.equals(idSuspeito)) {
+            return;
+        }
+        try {
+            registry.unbind(NOME_SEQUENCIADOR);
+        } catch (NotBoundException e) {
+            // Outro nó já removeu
+        }
+        if (atual != null) {
+            Mandato mandato = mandatos.remove(atual);
+            if (mandato != null) {
+                encerrarMandato(mandato);
+            }
+        }
+    }
+    
+    private void encerrarMandato(Mandato mandato) {
+        try {
+            UnicastRemoteObject.unexportObject(mandato, true);
+        } catch (NoSuchObjectException e) {
+            // Já não estava exportado
+        }
+    }
+    
     //Reconecta ao Registry em caso de falha
     public synchronized void reconectar() throws RemoteException {
+        cacheStubs.clear();
         inicializarRegistry();
     }
     
+    //Objeto remoto vinculado pelo sequenciador eleito
+    public interface Lider extends Remote {
+        String getIdNo() throws RemoteException;
+        long getTermo() throws RemoteException;
+    }
+    
+    private static class Mandato implements Lider {
+        private final String idNo;
+        private final long termo;
+        
+        Mandato(String idNo, long termo) {
+            this.idNo = idNo;
+            this.termo = termo;
+        }
+        
+        @Override
+        public String getIdNo() {
+            return idNo;
+        }
+        
+        @Override
+        public long getTermo() {
+            return termo;
+        }
+    }
+    
     //Previne clonagem do Singleton
     @Override
     protected Object clone() throws CloneNotSupportedException {
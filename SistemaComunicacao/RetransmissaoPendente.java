@@ -0,0 +1,42 @@
+/**
+ * Retransmissão agendada de uma mensagem própria em um enlace
+ * Fica na fila do CanalVizinho em ordem de sequência: o ACK cumulativo cancela
+ * as confirmadas pela frente da fila, O(1) por mensagem
+ * O temporizador só é armado quando o canal envia a mensagem pela primeira vez
+ */
+public class RetransmissaoPendente implements Runnable {
+    private final No dono;
+    private final Mensagem mensagem;
+    private final CanalVizinho canal;
+    private int tentativa;                                    // Só a thread da roda altera
+    private volatile RodaTemporizacao.Temporizador temporizador;
+
+    public RetransmissaoPendente(No dono, Mensagem mensagem, CanalVizinho canal) {
+        this.dono = dono;
+        this.mensagem = mensagem;
+        this.canal = canal;
+    }
+
+    // Arma o temporizador para daqui a um RTO do enlace
+    public void agendar() {
+        temporizador = dono.getRodaTemporizacao().agendar(canal.getRto(), this);
+    }
+
+    public void cancelar() {
+        RodaTemporizacao.Temporizador atual = temporizador;
+        if (atual != null) {
+            atual.cancelar();
+        }
+    }
+
+    // Disparado pela roda quando o RTO vence
+    @Override
+    public void run() {
+        dono.verificarACK(this);
+    }
+
+    public Mensagem getMensagem() { return mensagem; }
+    public CanalVizinho getCanal() { return canal; }
+    public int getTentativa() { return tentativa; }
+    public void proximaTentativa() { tentativa++; }
+}
@@ -0,0 +1,195 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Roda de temporização com hash (hashed timing wheel)
+ * Cada temporizador cai no balde do tick em que vence; uma única thread avança um balde por tick
+ * e dispara tudo o que venceu nele. Agendar e cancelar custam O(1), sem heap ordenado
+ * A precisão é de um tick: os temporizadores disparam até um tick depois do prazo
+ * As tarefas rodam na thread da roda e não devem bloquear
+ */
+public class RodaTemporizacao {
+    private static final int MAX_TRANSFERENCIAS_POR_TICK = 100000;
+
+    private final long tickNanos;
+    private final Temporizador[] baldes; // Cabeça da lista duplamente encadeada de cada balde
+    private final int mascara;
+    private final Queue<Temporizador> novos;
+    private final Queue<Temporizador> cancelados;
+    private final Thread trabalhador;
+    private final long inicio;
+    private volatile boolean ativa;
+    private long tick; // Só a thread da roda usa
+
+    public RodaTemporizacao(String nome, long tickMs, int quantidadeBaldes) {
+        int tamanho = Integer.highestOneBit(Math.max(2, quantidadeBaldes - 1)) << 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMs));
+        this.baldes = new Temporizador[tamanho];
+        this.mascara = tamanho - 1;
+        this.novos = new ConcurrentLinkedQueue<>();
+        this.cancelados = new ConcurrentLinkedQueue<>();
+        this.inicio = System.nanoTime();
+        this.trabalhador = new Thread(this::girar, "roda-" + nome);
+        this.trabalhador.setDaemon(true);
+    }
+
+    public void iniciar() {
+        ativa = true;
+        trabalhador.start();
+    }
+
+    public void encerrar() {
+        ativa = false;
+        trabalhador.interrupt();
+    }
+
+    public long getTickMs() {
+        return TimeUnit.NANOSECONDS.toMillis(tickNanos);
+    }
+
+    // Agenda a tarefa para daqui a 'atrasoMs'; pode ser chamado de qualquer thread
+    public Temporizador agendar(long atrasoMs, Runnable tarefa) {
+        long prazo = System.nanoTime() - inicio + TimeUnit.MILLISECONDS.toNanos(Math.max(0, atrasoMs));
+        Temporizador temporizador = new Temporizador(this, tarefa, prazo);
+        novos.add(temporizador);
+        return temporizador;
+    }
+
+    private void girar() {
+        while (ativa) {
+            long prazoTick = (tick + 1) * tickNanos;
+            long agora = System.nanoTime() - inicio;
+            if (agora < prazoTick) {
+                LockSupport.parkNanos(this, prazoTick - agora);
+                if (Thread.interrupted()) {
+                    return;
+                }
+                continue;
+            }
+            removerCancelados();
+            transferirNovos();
+            expirarBalde(baldes[(int) (tick & mascara)], agora);
+            tick++;
+        }
+    }
+
+    // Move os recém-agendados para o balde do tick em que vencem
+    private void transferirNovos() {
+        for (int i = 0; i < MAX_TRANSFERENCIAS_POR_TICK; i++) {
+            Temporizador temporizador = novos.poll();
+            if (temporizador == null) {
+                return;
+            }
+            if (temporizador.isCancelado()) {
+                continue;
+            }
+            long tickAlvo = Math.max(temporizador.prazo / tickNanos, tick); // Já vencido: dispara agora
+            temporizador.rodadasRestantes = (tickAlvo - tick) / baldes.length;
+            inserir(temporizador, (int) (tickAlvo & mascara));
+        }
+    }
+
+    private void removerCancelados() {
+        Temporizador temporizador;
+        while ((temporizador = cancelados.poll()) != null) {
+            if (temporizador.balde >= 0) {
+                remover(temporizador);
+            }
+        }
+    }
+
+    private void expirarBalde(Temporizador cabeca, long agora) {
+        Temporizador atual = cabeca;
+        while (atual != null) {
+            Temporizador proximo = atual.proximo;
+            if (atual.rodadasRestantes <= 0 && atual.prazo <= agora) {
+                remover(atual);
+                atual.expirar();
+            } else if (atual.rodadasRestantes > 0) {
+                atual.rodadasRestantes--;
+            }
+            atual = proximo;
+        }
+    }
+
+    private void inserir(Temporizador temporizador, int indice) {
+        temporizador.balde = indice;
+        temporizador.anterior = null;
+        temporizador.proximo = baldes[indice];
+        if (baldes[indice] != null) {
+            baldes[indice].anterior = temporizador;
+        }
+        baldes[indice] = temporizador;
+    }
+
+    // Retira da lista do balde em O(1)
+    private void remover(Temporizador temporizador) {
+        if (temporizador.anterior != null) {
+            temporizador.anterior.proximo = temporizador.proximo;
+        } else {
+            baldes[temporizador.balde] = temporizador.proximo;
+        }
+        if (temporizador.proximo != null) {
+            temporizador.proximo.anterior = temporizador.anterior;
+        }
+        temporizador.anterior = null;
+        temporizador.proximo = null;
+        temporizador.balde = -1;
+    }
+
+    /**
+     * Temporizador agendado na roda
+     * Os campos de lista só são usados pela thread da roda; o estado é atômico
+     */
+    public static class Temporizador {
+        private static final int PENDENTE = 0;
+        private static final int CANCELADO = 1;
+        private static final int EXPIRADO = 2;
+
+        private final RodaTemporizacao roda;
+        private final Runnable tarefa;
+        private final long prazo; // nanos desde o início da roda
+        private final AtomicInteger estado = new AtomicInteger(PENDENTE);
+
+        private long rodadasRestantes;
+        private int balde = -1;
+        private Temporizador anterior;
+        private Temporizador proximo;
+
+        private Temporizador(RodaTemporizacao roda, Runnable tarefa, long prazo) {
+            this.roda = roda;
+            this.tarefa = tarefa;
+            this.prazo = prazo;
+        }
+
+        /**
+         * Cancela em O(1): marca e deixa a retirada do balde para a thread da roda
+         * @return false se já disparou ou já estava cancelado
+         */
+        public boolean cancelar() {
+            if (!estado.compareAndSet(PENDENTE, CANCELADO)) {
+                return false;
+            }
+            roda.cancelados.add(this);
+            return true;
+        }
+
+        public boolean isCancelado() {
+            return estado.get() == CANCELADO;
+        }
+
+        private void expirar() {
+            if (!estado.compareAndSet(PENDENTE, EXPIRADO)) {
+                return;
+            }
+            try {
+                tarefa.run();
+            } catch (RuntimeException e) {
+                GerenciadorLog.getInstancia().registrarGlobal("Erro em tarefa temporizada: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordem total por sequenciador com lotes
+ * Cada nó já recebe cada remetente em FIFO; o sequenciador só precisa dizer como intercalar
+ * os remetentes. Um lote de ordem é a lista "A até a seq 57, depois B até 80, ...": uma faixa
+ * inteira de um remetente custa um único trecho, e um lote cobre tudo o que chegou na janela
+ * Todo nó acompanha até onde recebeu e até onde já foi ordenado, então quem assume no lugar
+ * de um sequenciador que falhou ordena o que ficou pendente sem repetir o que já foi ordenado
+ * Cada lote leva o mandato de quem o emitiu; lotes de um mandato já substituído são recusados
+ */
+public class Sequenciador {
+    private int[] recebidoAte = new int[16];  // Maior sequência recebida em FIFO de cada remetente
+    private int[] atribuidoAte = new int[16]; // Maior sequência já coberta por algum lote
+    private final List<Integer> tocados = new ArrayList<>(); // Remetentes da janela, por ordem de chegada
+    private boolean[] marcados = new boolean[16];
+    private boolean ativo;
+    private long termoVisto; // Maior mandato entre os lotes aplicados
+
+    /**
+     * Registra a chegada (em FIFO) de uma mensagem do remetente
+     * @return true se este nó é o sequenciador e há um lote a fechar
+     */
+    public synchronized boolean registrar(int indiceRemetente, int seq) {
+        garantirCapacidade(indiceRemetente);
+        if (seq > recebidoAte[indiceRemetente]) {
+            recebidoAte[indiceRemetente] = seq;
+        }
+        if (!ativo || seq <= atribuidoAte[indiceRemetente]) {
+            return false;
+        }
+        if (!marcados[indiceRemetente]) {
+            marcados[indiceRemetente] = true;
+            tocados.add(indiceRemetente);
+        }
+        return true;
+    }
+
+    // Lote aplicado (de qualquer sequenciador): as faixas cobertas não entram de novo
+    public synchronized void registrarAtribuidos(long termo, List<Trecho> trechos) {
+        termoVisto = Math.max(termoVisto, termo);
+        for (Trecho trecho : trechos) {
+            garantirCapacidade(trecho.indice);
+            if (trecho.ateSeq > atribuidoAte[trecho.indice]) {
+                atribuidoAte[trecho.indice] = trecho.ateSeq;
+            }
+        }
+    }
+
+    public synchronized void setAtivo(boolean ativo) {
+        this.ativo = ativo;
+    }
+
+    public synchronized boolean isAtivo() {
+        return ativo;
+    }
+
+    // Mandato a pedir na eleição: acima de todos os vistos e, como a versão da árvore, a partir do relógio
+    public synchronized long proximoTermo() {
+        return Math.max(termoVisto + 1, System.currentTimeMillis());
+    }
+
+    /**
+     * Fecha o lote: primeiro os remetentes na ordem em que chegaram na janela, depois os
+     * que ficaram recebidos e sem ordem (herdados de um sequenciador anterior)
+     * @return os trechos do lote, vazio se não há nada novo
+     */
+    public synchronized List<Trecho> fechar() {
+        if (!ativo) {
+            return Collections.emptyList();
+        }
+        List<Trecho> trechos = new ArrayList<>(tocados.size());
+        for (int indice : tocados) {
+            marcados[indice] = false;
+            adicionarPendente(trechos, indice);
+        }
+        tocados.clear();
+        for (int indice = 0; indice < recebidoAte.length; indice++) {
+            adicionarPendente(trechos, indice);
+        }
+        return trechos;
+    }
+
+    private void adicionarPendente(List<Trecho> trechos, int indice) {
+        if (recebidoAte[indice] > atribuidoAte[indice]) {
+            atribuidoAte[indice] = recebidoAte[indice];
+            trechos.add(new Trecho(indice, recebidoAte[indice]));
+        }
+    }
+
+    private void garantirCapacidade(int indice) {
+        if (indice >= recebidoAte.length) {
+            int tamanho = Math.max(recebidoAte.length * 2, indice + 1);
+            recebidoAte = Arrays.copyOf(recebidoAte, tamanho);
+            atribuidoAte = Arrays.copyOf(atribuidoAte, tamanho);
+            marcados = Arrays.copyOf(marcados, tamanho);
+        }
+    }
+
+    // Conteúdo do lote: "@mandato" e trechos ";remetente=ateSeq" (índices não valem entre JVMs)
+    public static String codificar(long termo, List<Trecho> trechos) {
+        DicionarioNos dicionario = DicionarioNos.getInstancia();
+        StringBuilder conteudo = new StringBuilder().append('@').append(termo);
+        for (Trecho trecho : trechos) {
+            conteudo.append(';').append(dicionario.nome(trecho.indice)).append('=').append(trecho.ateSeq);
+        }
+        return conteudo.toString();
+    }
+
+    // Mandato de quem emitiu o lote; 0 se o lote não traz
+    public static long termo(Mensagem lote) {
+        String conteudo = lote.getConteudo();
+        int inicio = conteudo.indexOf('@');
+        if (inicio < 0) {
+            return 0;
+        }
+        int fim = conteudo.indexOf(';', inicio);
+        return Long.parseLong(conteudo.substring(inicio + 1, fim < 0 ? conteudo.length() : fim));
+    }
+
+    public static List<Trecho> decodificar(Mensagem lote) {
+        DicionarioNos dicionario = DicionarioNos.getInstancia();
+        String[] campos = lote.getConteudo().split(";");
+        List<Trecho> trechos = new ArrayList<>(campos.length);
+        for (int i = 1; i < campos.length; i++) { // O primeiro campo é o prefixo de controle e o mandato
+            int separador = campos[i].lastIndexOf('=');
+            trechos.add(new Trecho(dicionario.indice(campos[i].substring(0, separador)),
+                Integer.parseInt(campos[i].substring(separador + 1))));
+        }
+        return trechos;
+    }
+
+    // Entregar o remetente até 'ateSeq' (inclusive) antes de passar ao próximo trecho
+    public static class Trecho {
+        final int indice;
+        final int ateSeq;
+
+        Trecho(int indice, int ateSeq) {
+            this.indice = indice;
+            this.ateSeq = ateSeq;
+        }
+    }
+}
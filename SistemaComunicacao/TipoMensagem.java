@@ -6,5 +6,6 @@ public enum TipoMensagem {
     ACK,         // Confirmação de recebimento
     NACK,        // Não confirmação (fora de ordem)
     HEARTBEAT,   // Verificação de vida
-    CONTROLE     // Mensagens de controle do sistema
+    CONTROLE,    // Mensagens de controle do sistema
+    ORDEM        // Lote de ordem total emitido pelo sequenciador
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+import java.io.IOException;
+import java.rmi.RemoteException;
+
+/**
+ * Padrão Strategy: Interface que isola o protocolo do mecanismo de transporte
+ * O nó só conversa com vizinhos através de NoInterface; cada transporte
+ * decide como publicar o nó local e como alcançar os demais
+ */
+public interface Transporte {
+    /**
+     * Torna o nó local alcançável pelos demais nós
+     * @throws IOException se não for possível publicar o nó
+     */
+    void publicar(No no) throws IOException;
+
+    /**
+     * Localiza um nó remoto pelo identificador (ou endereço, conforme o transporte)
+     * @throws RemoteException se o nó não puder ser alcançado
+     */
+    NoInterface buscarNo(String idNo) throws RemoteException;
+
+    // Descarta referências em cache para o nó (após falha de comunicação)
+    void invalidar(String idNo);
+
+    // Retira o nó local do transporte e libera recursos
+    void encerrar(No no);
+
+    // Retorna o nome do transporte para logging
+    String getNome();
+}
@@ -0,0 +1,446 @@
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transporte TCP não bloqueante (SocketChannel + Selector)
+ * Uma única conexão por par de vizinhos, usada nos dois sentidos,
+ * com quadros binários prefixados pelo tamanho (ver QuadroNio)
+ * Vizinhos são localizados por "host:porta"; após o handshake, também pelo id
+ */
+public class TransporteNio implements Transporte {
+    private static final long TIMEOUT_HANDSHAKE_MS = 5000;
+    private static final int CAPACIDADE_DESPACHANTE = 4096;
+    private static final long ESPERA_REENTREGA_MAX_MS = 50;
+
+    private final int porta;
+    private final Map<String, ConexaoNio> conexoes; // por id do nó remoto
+    private final Queue<ConexaoNio> registrosPendentes;
+    private No no;
+    private Selector selector;
+    private ServerSocketChannel servidor;
+    private ExecutorService despachante;
+    private volatile boolean ativo;
+
+    public TransporteNio(int porta) {
+        this.porta = porta;
+        this.conexoes = new ConcurrentHashMap<>();
+        this.registrosPendentes = new ConcurrentLinkedQueue<>();
+    }
+
+    @Override
+    public void publicar(No no) throws IOException {
+        this.no = no;
+        this.selector = Selector.open();
+        this.servidor = ServerSocketChannel.open();
+        servidor.bind(new InetSocketAddress(porta));
+        servidor.configureBlocking(false);
+        servidor.register(selector, SelectionKey.OP_ACCEPT);
+
+        // Chamadas ao nó saem da thread do Selector para não travar a E/S; com a fila cheia,
+        // o Selector espera a vez e para de ler, e o TCP segura o vizinho
+        this.despachante = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, 
+            new ArrayBlockingQueue<>(CAPACIDADE_DESPACHANTE), TransporteNio::aguardarVaga);
+        this.ativo = true;
+
+        Thread threadSelector = new Thread(this::executarSelector, "nio-" + no.getIdNo());
+        threadSelector.setDaemon(true);
+        threadSelector.start();
+
+        GerenciadorLog.getInstancia().registrar(no.getIdNo(),
+            "Transporte NIO escutando na porta " + porta);
+    }
+
+    @Override
+    public NoInterface buscarNo(String destino) throws RemoteException {
+        NoInterface local = DiretorioLocal.getInstancia().buscar(destino);
+        if (local != null) {
+            return local;
+        }
+        ConexaoNio conexao = conexoes.get(destino);
+        if (conexao != null) {
+            return conexao;
+        }
+        if (!destino.contains(":")) {
+            throw new RemoteException("Nó " + destino + " não conectado (use host:porta)");
+        }
+        return conectar(destino);
+    }
+
+    // Abre a conexão e aguarda o handshake do vizinho
+    private ConexaoNio conectar(String endereco) throws RemoteException {
+        String[] partes = endereco.split(":");
+        try {
+            SocketChannel canal = SocketChannel.open(
+                new InetSocketAddress(partes[0], Integer.parseInt(partes[1])));
+            canal.configureBlocking(false);
+            canal.socket().setTcpNoDelay(true);
+
+            // O hello é enfileirado antes do registro para já nascer com interesse de escrita
+            ConexaoNio conexao = new ConexaoNio(this, canal, false);
+            conexao.enviarQuadro(QuadroNio.hello(no.getIdNo()));
+            registrosPendentes.offer(conexao);
+            selector.wakeup();
+
+            conexao.aguardarIdentificacao(TIMEOUT_HANDSHAKE_MS);
+            return conexao;
+        } catch (IOException | RuntimeException e) {
+            throw new RemoteException("Falha ao conectar em " + endereco, e);
+        }
+    }
+
+    @Override
+    public void invalidar(String idNo) {
+        // Conexões são removidas quando caem; não há cache a invalidar
+    }
+
+    @Override
+    public void encerrar(No no) {
+        ativo = false;
+        for (ConexaoNio conexao : new ArrayList<>(conexoes.values())) {
+            fechar(conexao);
+        }
+        try {
+            if (servidor != null) {
+                servidor.close();
+            }
+            if (selector != null) {
+                selector.close();
+            }
+        } catch (IOException e) {
+            GerenciadorLog.getInstancia().registrar(no.getIdNo(),
+                "Erro ao encerrar transporte NIO: " + e.getMessage());
+        }
+        if (despachante != null) {
+            despachante.shutdownNow();
+        }
+    }
+
+    @Override
+    public String getNome() {
+        return "NIO:" + porta;
+    }
+
+    // Chamado por qualquer thread que enfileirou um quadro na conexão
+    void solicitarEscrita(ConexaoNio conexao) {
+        SelectionKey chave = conexao.getChave();
+        if (chave != null && chave.isValid()) {
+            chave.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            selector.wakeup();
+        }
+    }
+
+    private void executarSelector() {
+        while (ativo) {
+            try {
+                selector.select();
+                registrarPendentes();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey chave = it.next();
+                    it.remove();
+                    if (!chave.isValid()) {
+                        continue;
+                    }
+                    if (chave.isAcceptable()) {
+                        aceitar();
+                        continue;
+                    }
+
+                    ConexaoNio conexao = (ConexaoNio) chave.attachment();
+                    try {
+                        if (chave.isReadable()) {
+                            conexao.ler();
+                        }
+                        if (chave.isValid() && chave.isWritable()) {
+                            conexao.escrever();
+                        }
+                    } catch (IOException e) {
+                        GerenciadorLog.getInstancia().registrar(no.getIdNo(),
+                            "Conexão com " + conexao.getIdNo() + " perdida: " + e.getMessage());
+                        perderConexao(conexao);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (ativo) {
+                    GerenciadorLog.getInstancia().registrar(no.getIdNo(),
+                        "Erro no Selector: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void aceitar() throws IOException {
+        SocketChannel canal = servidor.accept();
+        if (canal == null) {
+            return;
+        }
+        canal.configureBlocking(false);
+        canal.socket().setTcpNoDelay(true);
+        ConexaoNio conexao = new ConexaoNio(this, canal, true);
+        conexao.setChave(canal.register(selector, SelectionKey.OP_READ, conexao));
+    }
+
+    // Registros só podem ser feitos com segurança na thread do Selector
+    private void registrarPendentes() throws IOException {
+        ConexaoNio conexao;
+        while ((conexao = registrosPendentes.poll()) != null) {
+            int interesse = SelectionKey.OP_READ;
+            if (conexao.temEscritaPendente()) {
+                interesse |= SelectionKey.OP_WRITE;
+            }
+            conexao.setChave(conexao.getCanal().register(selector, interesse, conexao));
+        }
+    }
+
+    // Decodifica um quadro recebido e entrega a chamada correspondente ao nó local
+    void despachar(ConexaoNio conexao, byte[] corpo) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(corpo));
+        byte tipo = in.readByte();
+
+        switch (tipo) {
+            case QuadroNio.HELLO: {
+                String idRemoto = in.readUTF();
+                int versao = in.readByte();
+                if (versao != CodecMensagem.VERSAO) {
+                    throw new IOException("Vizinho " + idRemoto + " usa codec versão " + versao);
+                }
+                concluirHandshake(conexao, idRemoto);
+                break;
+            }
+
+            case QuadroNio.MENSAGEM: {
+                Mensagem msg = conexao.getCodec().decodificar(in);
+                entregarAoNo(conexao, () -> no.receive(msg));
+                break;
+            }
+
+            case QuadroNio.LOTE: {
+                int quantidade = CodecMensagem.lerQuantidade(in);
+                List<Mensagem> lote = new ArrayList<>(quantidade);
+                for (int i = 0; i < quantidade; i++) {
+                    lote.add(conexao.getCodec().decodificar(in));
+                }
+                entregarAoNo(conexao, () -> no.receiveBatch(lote));
+                break;
+            }
+
+            case QuadroNio.LOTE_COM_ACK: {
+                String remetenteId = in.readUTF();
+                int ackAte = in.readInt();
+                int credito = (int) CodecMensagem.lerVarint(in);
+                int quantidade = CodecMensagem.lerQuantidade(in);
+                List<Mensagem> lote = new ArrayList<>(quantidade);
+                for (int i = 0; i < quantidade; i++) {
+                    lote.add(conexao.getCodec().decodificar(in));
+                }
+                entregarAoNo(conexao, () -> no.receiveBatch(lote, remetenteId, ackAte, credito));
+                break;
+            }
+
+            case QuadroNio.ACK_CUMULATIVO: {
+                String receptorId = in.readUTF();
+                int ateSeq = in.readInt();
+                int credito = (int) CodecMensagem.lerVarint(in);
+                executarNoNo(() -> no.ackCumulativo(receptorId, ateSeq, credito));
+                break;
+            }
+
+            case QuadroNio.ACK: {
+                Mensagem msg = conexao.getCodec().decodificar(in);
+                executarNoNo(() -> no.ack(msg));
+                break;
+            }
+
+            case QuadroNio.NACK: {
+                String senderId = in.readUTF();
+                int lastReceivedSeq = in.readInt();
+                executarNoNo(() -> no.handleNACK(senderId, lastReceivedSeq));
+                break;
+            }
+
+            case QuadroNio.NACK_SELETIVO: {
+                String senderId = in.readUTF();
+                int lastReceivedSeq = in.readInt();
+                int credito = (int) CodecMensagem.lerVarint(in);
+                int[] lacunas = new int[CodecMensagem.lerQuantidade(in) * 2];
+                for (int i = 0; i < lacunas.length; i++) {
+                    lacunas[i] = (int) CodecMensagem.lerVarint(in);
+                }
+                executarNoNo(() -> no.handleNACK(senderId, lastReceivedSeq, lacunas, credito));
+                break;
+            }
+
+            case QuadroNio.NACK_REPASSE: {
+                String solicitanteId = in.readUTF();
+                String origemId = in.readUTF();
+                int[] lacunas = new int[CodecMensagem.lerQuantidade(in) * 2];
+                for (int i = 0; i < lacunas.length; i++) {
+                    lacunas[i] = (int) CodecMensagem.lerVarint(in);
+                }
+                executarNoNo(() -> no.nackRepasse(solicitanteId, origemId, lacunas));
+                break;
+            }
+
+            case QuadroNio.ARVORE: {
+                String idVizinho = in.readUTF();
+                String raiz = in.readUTF();
+                int distancia = (int) CodecMensagem.lerVarint(in);
+                String pai = in.readUTF();
+                long versao = in.readLong();
+                executarNoNo(() -> no.anunciarArvore(idVizinho, raiz, distancia, pai.isEmpty() ? null : pai, versao));
+                break;
+            }
+
+            case QuadroNio.RESUMO_FOFOCA: {
+                String idVizinho = in.readUTF();
+                boolean responder = in.readBoolean();
+                int quantidade = CodecMensagem.lerQuantidade(in);
+                String[] remetentes = new String[quantidade];
+                int[] ateSeq = new int[quantidade];
+                for (int i = 0; i < quantidade; i++) {
+                    remetentes[i] = in.readUTF();
+                    ateSeq[i] = (int) CodecMensagem.lerVarint(in);
+                }
+                executarNoNo(() -> no.resumoFofoca(idVizinho, remetentes, ateSeq, responder));
+                break;
+            }
+
+            case QuadroNio.ATUALIZACAO: {
+                String idVizinho = in.readUTF();
+                boolean pedido = in.readBoolean();
+                int quantidade = CodecMensagem.lerQuantidade(in);
+                String[] remetentes = new String[quantidade];
+                int[] ateSeq = new int[quantidade];
+                for (int i = 0; i < quantidade; i++) {
+                    remetentes[i] = in.readUTF();
+                    ateSeq[i] = (int) CodecMensagem.lerVarint(in);
+                }
+                if (pedido) {
+                    executarNoNo(() -> no.pedirAtualizacao(idVizinho, remetentes, ateSeq));
+                } else {
+                    executarNoNo(() -> no.ofertaAtualizacao(idVizinho, remetentes, ateSeq));
+                }
+                break;
+            }
+
+            case QuadroNio.HEARTBEAT:
+                executarNoNo(() -> no.heartbeat(conexao.getIdNo()));
+                break;
+
+            default:
+                throw new IOException("Tipo de quadro desconhecido: " + tipo);
+        }
+    }
+
+    private void concluirHandshake(ConexaoNio conexao, String idRemoto) throws IOException {
+        conexao.identificar(idRemoto);
+        conexoes.put(idRemoto, conexao);
+
+        if (conexao.isAceita()) {
+            // Responde com a própria identidade e registra o vizinho recíproco
+            conexao.enviarQuadro(QuadroNio.hello(no.getIdNo()));
+            executarNoNo(() -> no.adicionarVizinho(conexao));
+        }
+    }
+
+    private void executarNoNo(ChamadaNo chamada) {
+        try {
+            despachante.execute(() -> {
+                try {
+                    chamada.executar();
+                } catch (RemoteException e) {
+                    GerenciadorLog.getInstancia().registrar(no.getIdNo(),
+                        "Erro ao processar quadro NIO: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Transporte encerrando
+        }
+    }
+
+    /**
+     * Mensagens recusadas pelo nó (faixa cheia) esperam aqui em vez de serem descartadas;
+     * o despachante enche, o Selector para de ler e a fila de saída do vizinho faz o canal recuar
+     */
+    private void entregarAoNo(ConexaoNio conexao, ChamadaNo chamada) {
+        executarNoNo(() -> {
+            long esperaMs = 1;
+            while (true) {
+                try {
+                    chamada.executar();
+                    return;
+                } catch (RemoteException e) {
+                    if (!ativo || !conexao.getCanal().isOpen() 
+                            || "INATIVO".equals(no.getEstado().getNomeEstado())) {
+                        throw e;
+                    }
+                }
+                try {
+                    Thread.sleep(esperaMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                esperaMs = Math.min(ESPERA_REENTREGA_MAX_MS, esperaMs * 2);
+            }
+        });
+    }
+
+    // Fila do despachante cheia: quem despacha (a thread do Selector) espera até ter vaga
+    private static void aguardarVaga(Runnable tarefa, ThreadPoolExecutor pool) {
+        try {
+            while (!pool.isShutdown()) {
+                if (pool.getQueue().offer(tarefa, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new RejectedExecutionException("Despachante encerrado");
+    }
+
+    private void perderConexao(ConexaoNio conexao) {
+        fechar(conexao);
+        if (conexao.isIdentificada()) {
+            executarNoNo(() -> no.tratarFalhaVizinho(conexao));
+        }
+    }
+
+    private void fechar(ConexaoNio conexao) {
+        if (conexao.getIdNo() != null) {
+            conexoes.remove(conexao.getIdNo(), conexao);
+        }
+        try {
+            conexao.getCanal().close();
+        } catch (IOException e) {
+            // Conexão já encerrada
+        }
+    }
+
+    // Chamada ao nó local que pode lançar RemoteException
+    private interface ChamadaNo {
+        void executar() throws RemoteException;
+    }
+}
@@ -0,0 +1,67 @@
+import java.io.IOException;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+
+/**
+ * Transporte padrão: Java RMI através do RegistryManager
+ * O nó fica exportado entre desligar e ativar: o stub guardado pelos vizinhos continua valendo,
+ * e enquanto o nó está inativo o próprio estado recusa as chamadas
+ */
+public class TransporteRmi implements Transporte {
+    private volatile boolean exportado;
+
+    @Override
+    public synchronized void publicar(No no) throws IOException {
+        if (!exportado) {
+            UnicastRemoteObject.exportObject(no, 0);
+            exportado = true;
+        }
+        RegistryManager.getInstancia().registrarNo(no.getIdNo(), no);
+    }
+
+    @Override
+    public NoInterface buscarNo(String idNo) throws RemoteException {
+        try {
+            // Usa singleton
+            return RegistryManager.getInstancia().buscarNo(idNo);
+        } catch (NotBoundException e) {
+            throw new RemoteException("Nó não encontrado", e);
+        } catch (RemoteException e) {
+            GerenciadorLog.getInstancia().registrarGlobal(
+                "Falha no registry, tentando reconectar...");
+            try {
+                RegistryManager.getInstancia().reconectar();
+                return RegistryManager.getInstancia().buscarNo(idNo);
+            } catch (Exception ex) {
+                GerenciadorLog.getInstancia().registrarGlobal("Falha crítica no registry");
+                throw new RemoteException("Registry inacessível", ex);
+            }
+        }
+    }
+
+    @Override
+    public void invalidar(String idNo) {
+        try {
+            RegistryManager.getInstancia().invalidarCache(idNo);
+        } catch (RemoteException e) {
+            // Sem registry não há cache a invalidar
+        }
+    }
+
+    // Só sai do registry; desexportar trocaria o ObjID e deixaria os stubs dos vizinhos mortos
+    @Override
+    public void encerrar(No no) {
+        try {
+            RegistryManager.getInstancia().removerNo(no.getIdNo());
+        } catch (Exception e) {
+            GerenciadorLog.getInstancia().registrar(no.getIdNo(), 
+                "Erro ao desregistrar nó: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String getNome() {
+        return "RMI";
+    }
+}